@@ -0,0 +1,93 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.mycore.datamodel.metadata.MCRObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building a whole PICA+ patch the way {@link VZGPublishPicaPatchCronJob#runJob()} does
+ * once the objects are loaded: extract the identifiers, check the object and write its entry into
+ * a spool. Loading from the metadata store, Solr and the upload are left out. The records cycle
+ * through a pool of synthetic objects, so the 100k run does not need 100k objects on the heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VZGPicaPatchBuildBenchmark {
+
+    private static final int POOL_SIZE = 1000;
+
+    @Param({ "1000", "10000", "100000" })
+    public int records;
+
+    @Param({ "false", "true" })
+    public boolean compress;
+
+    private VZGPublishPicaPatchCronJob cronJob;
+
+    private MCRObject[] objects;
+
+    @Setup
+    public void setUp() {
+        VZGSyntheticModsObjects.configure();
+        cronJob = new VZGPublishPicaPatchCronJob();
+        cronJob.setPublishableDerivateCategories(
+            VZGSyntheticModsObjects.PUBLISHABLE_DERIVATE_CATEGORY);
+        objects = VZGSyntheticModsObjects.create(POOL_SIZE, 42);
+    }
+
+    /**
+     * The score is reported in patches per second, divide by the records for the per record cost.
+     */
+    @Benchmark
+    public long buildPatch() throws IOException {
+        try (VZGPicaPatchSpool spool = VZGPicaPatchSpool.inMemory(compress)) {
+            Writer writer = spool.getWriter();
+            for (int i = 0; i < records; i++) {
+                MCRObject obj = objects[i % objects.length];
+                VZGModsIdentifiers identifiers = VZGModsIdentifiers.of(obj);
+                if (cronJob.checkIfPublishable(obj, identifiers)) {
+                    cronJob.writePicaPatchEntry(writer, VZGSyntheticModsObjects.BASE_URL,
+                        identifiers.ppn(), identifiers.getFirstUrn().orElseThrow());
+                }
+            }
+            spool.finish();
+            return spool.getByteCount();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.mycore.datamodel.metadata.MCRObject;
+import org.mycore.mods.MCRMODSWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per record steps of {@link VZGPublishPicaPatchCronJob}. Every invocation takes the
+ * next object of a pool of synthetic objects, so the results are not distorted by a single object
+ * staying hot in the caches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VZGPicaPatchEntryBenchmark {
+
+    private static final int POOL_SIZE = 1000;
+
+    private VZGPublishPicaPatchCronJob cronJob;
+
+    private MCRObject[] objects;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        VZGSyntheticModsObjects.configure();
+        cronJob = new VZGPublishPicaPatchCronJob();
+        cronJob.setPublishableDerivateCategories(
+            VZGSyntheticModsObjects.PUBLISHABLE_DERIVATE_CATEGORY);
+        objects = VZGSyntheticModsObjects.create(POOL_SIZE, 42);
+    }
+
+    private MCRObject nextObject() {
+        MCRObject obj = objects[next];
+        next = (next + 1) % objects.length;
+        return obj;
+    }
+
+    @Benchmark
+    public boolean checkIfPublishable() {
+        return cronJob.checkIfPublishable(nextObject());
+    }
+
+    @Benchmark
+    public Optional<String> getPPN() {
+        return cronJob.getPPN(new MCRMODSWrapper(nextObject()));
+    }
+
+    @Benchmark
+    public List<String> getURNS() {
+        return cronJob.getURNS(new MCRMODSWrapper(nextObject()));
+    }
+
+    @Benchmark
+    public String convertToPicaPatchEntry() {
+        return cronJob.convertToPicaPatchEntry(nextObject());
+    }
+}
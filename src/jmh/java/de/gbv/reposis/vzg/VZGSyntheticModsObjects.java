@@ -0,0 +1,231 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.mycore.common.MCRConstants;
+import org.mycore.common.config.MCRConfiguration2;
+import org.mycore.datamodel.metadata.MCRObject;
+
+/**
+ * Creates synthetic MIR objects for the benchmarks. The MODS part is shaped like a typical imported
+ * catalogue record: titles, several persons with GND identifiers, an abstract, subjects,
+ * classifications, a host item and the PPN, URN and DOI identifiers, which makes the serialized
+ * objects about as large as the real ones. Every object has a content derivate with a main file
+ * and is therefore publishable.
+ */
+final class VZGSyntheticModsObjects {
+
+    static final String BASE_URL = "https://reposis.example.org/";
+
+    static final String PUBLISHABLE_DERIVATE_CATEGORY = "derivate_types:content";
+
+    private static final Namespace MODS = MCRConstants.MODS_NAMESPACE;
+
+    private static final String[] WORDS = { "Bibliothek", "Verbund", "Katalog", "Erschließung",
+        "Digitalisierung", "Forschungsdaten", "Langzeitarchivierung", "Metadaten", "Repositorium",
+        "Zeitschrift", "Open", "Access", "Publikation", "Volltext", "Normdaten", "Analyse" };
+
+    private VZGSyntheticModsObjects() {
+    }
+
+    /**
+     * Sets the configuration needed to create objects and to resolve the base URL outside of a
+     * running application.
+     */
+    static void configure() {
+        MCRConfiguration2.set("MCR.Metadata.Type.mods", "true");
+        MCRConfiguration2.set("MCR.Metadata.Type.derivate", "true");
+        MCRConfiguration2.set("MCR.Metadata.ObjectID.NumberPattern", "00000000");
+        MCRConfiguration2.set("MCR.baseurl", BASE_URL);
+    }
+
+    /**
+     * @param count the number of objects
+     * @param seed the seed of the random content, so runs are comparable
+     * @return the publishable objects
+     */
+    static MCRObject[] create(int count, long seed) {
+        Random random = new Random(seed);
+        MCRObject[] objects = new MCRObject[count];
+        for (int i = 0; i < count; i++) {
+            objects[i] = new MCRObject(createDocument(i + 1, random));
+        }
+        return objects;
+    }
+
+    private static Document createDocument(int number, Random random) {
+        String id = String.format(Locale.ROOT, "mir_mods_%08d", number);
+        String derivateId = String.format(Locale.ROOT, "mir_derivate_%08d", number);
+
+        Element derobject = new Element("derobject")
+            .setAttribute("inherited", "0")
+            .setAttribute("type", "locator", MCRConstants.XLINK_NAMESPACE)
+            .setAttribute("href", derivateId, MCRConstants.XLINK_NAMESPACE);
+        derobject.addContent(new Element("maindoc").setText("document.pdf"));
+        derobject.addContent(new Element("classification")
+            .setAttribute("classid", "derivate_types")
+            .setAttribute("categid", "content"));
+        Element structure = new Element("structure")
+            .addContent(new Element("derobjects")
+                .setAttribute("class", "MCRMetaEnrichedLinkID")
+                .addContent(derobject));
+
+        Element metadata = new Element("metadata")
+            .addContent(new Element("def.modsContainer")
+                .setAttribute("class", "MCRMetaXML")
+                .setAttribute("heritable", "false")
+                .setAttribute("notinherit", "true")
+                .addContent(new Element("modsContainer")
+                    .setAttribute("inherited", "0")
+                    .addContent(createMods(number, random))));
+
+        Element service = new Element("service")
+            .addContent(new Element("servdates")
+                .setAttribute("class", "MCRMetaISO8601Date")
+                .addContent(new Element("servdate")
+                    .setAttribute("type", "createdate")
+                    .setAttribute("inherited", "0")
+                    .setText("2024-05-02T10:15:30.000Z"))
+                .addContent(new Element("servdate")
+                    .setAttribute("type", "modifydate")
+                    .setAttribute("inherited", "0")
+                    .setText("2024-06-11T08:01:12.000Z")))
+            .addContent(new Element("servflags")
+                .setAttribute("class", "MCRMetaLangText")
+                .addContent(new Element("servflag")
+                    .setAttribute("type", "createdby")
+                    .setAttribute("inherited", "0")
+                    .setText("editor")))
+            .addContent(new Element("servstates")
+                .setAttribute("class", "MCRMetaClassification")
+                .addContent(new Element("servstate")
+                    .setAttribute("inherited", "0")
+                    .setAttribute("classid", "state")
+                    .setAttribute("categid", "published")));
+
+        Element root = new Element("mycoreobject")
+            .setAttribute("ID", id)
+            .setAttribute("version", "2025.06")
+            .setAttribute("noNamespaceSchemaLocation", "datamodel-mods.xsd",
+                MCRConstants.XSI_NAMESPACE)
+            .addContent(structure)
+            .addContent(metadata)
+            .addContent(service);
+        return new Document(root);
+    }
+
+    private static Element createMods(int number, Random random) {
+        Element mods = new Element("mods", MODS);
+        mods.addContent(mods("genre")
+            .setAttribute("type", "intern")
+            .setAttribute("authorityURI", "http://www.mycore.org/classifications/mir_genres")
+            .setAttribute("valueURI", "http://www.mycore.org/classifications/mir_genres#article"));
+        mods.addContent(mods("titleInfo")
+            .setAttribute("lang", "de", Namespace.XML_NAMESPACE)
+            .addContent(mods("title").setText(words(random, 8)))
+            .addContent(mods("subTitle").setText(words(random, 6))));
+
+        int persons = 2 + random.nextInt(6);
+        for (int i = 0; i < persons; i++) {
+            mods.addContent(mods("name")
+                .setAttribute("type", "personal")
+                .addContent(mods("namePart").setAttribute("type", "family").setText(word(random)))
+                .addContent(mods("namePart").setAttribute("type", "given").setText(word(random)))
+                .addContent(mods("nameIdentifier").setAttribute("type", "gnd")
+                    .setText("1" + (100000000 + random.nextInt(899999999))))
+                .addContent(mods("role")
+                    .addContent(mods("roleTerm")
+                        .setAttribute("authority", "marcrelator")
+                        .setAttribute("type", "code")
+                        .setText(i == 0 ? "aut" : "ctb"))));
+        }
+
+        mods.addContent(mods("originInfo")
+            .setAttribute("eventType", "publication")
+            .addContent(mods("publisher").setText(words(random, 3)))
+            .addContent(mods("place").addContent(mods("placeTerm").setText("Göttingen")))
+            .addContent(mods("dateIssued")
+                .setAttribute("encoding", "w3cdtf")
+                .setText(Integer.toString(1990 + random.nextInt(35)))));
+        mods.addContent(mods("language")
+            .addContent(mods("languageTerm")
+                .setAttribute("authority", "rfc5646")
+                .setAttribute("type", "code")
+                .setText("de")));
+        mods.addContent(mods("physicalDescription")
+            .addContent(mods("extent").setText((10 + random.nextInt(400)) + " Seiten")));
+        mods.addContent(mods("abstract")
+            .setAttribute("lang", "de", Namespace.XML_NAMESPACE)
+            .setText(words(random, 150 + random.nextInt(100))));
+
+        int subjects = 4 + random.nextInt(8);
+        for (int i = 0; i < subjects; i++) {
+            mods.addContent(mods("subject").addContent(mods("topic").setText(word(random))));
+        }
+        mods.addContent(mods("classification")
+            .setAttribute("authorityURI", "http://www.mycore.org/classifications/SDNB")
+            .setAttribute("valueURI", "http://www.mycore.org/classifications/SDNB#020"));
+        mods.addContent(mods("relatedItem")
+            .setAttribute("type", "host")
+            .addContent(mods("titleInfo").addContent(mods("title").setText(words(random, 4))))
+            .addContent(mods("part")
+                .addContent(mods("detail").setAttribute("type", "volume")
+                    .addContent(mods("number").setText(Integer.toString(1 + random.nextInt(60)))))
+                .addContent(mods("extent").setAttribute("unit", "pages")
+                    .addContent(mods("start").setText("1"))
+                    .addContent(mods("end").setText(Integer.toString(2 + random.nextInt(40)))))));
+
+        String ppn = Integer.toString(100000000 + number) + "X";
+        mods.addContent(mods("identifier").setAttribute("type", "uri")
+            .setText("http://uri.gbv.de/document/gvk:ppn:" + ppn));
+        mods.addContent(mods("identifier").setAttribute("type", "doi")
+            .setText("10.1234/vzg." + number));
+        mods.addContent(mods("identifier").setAttribute("type", "urn")
+            .setText(String.format(Locale.ROOT, "urn:nbn:de:gbv:7-vzg-%08d-%d", number,
+                number % 10)));
+        mods.addContent(mods("accessCondition")
+            .setAttribute("type", "use and reproduction")
+            .setAttribute("href", "http://www.mycore.org/classifications/mir_licenses#cc_by_4.0",
+                MCRConstants.XLINK_NAMESPACE));
+        return mods;
+    }
+
+    private static Element mods(String name) {
+        return new Element(name, MODS);
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder(word(random));
+        for (int i = 1; i < count; i++) {
+            words.append(' ').append(word(random));
+        }
+        return words.toString();
+    }
+}
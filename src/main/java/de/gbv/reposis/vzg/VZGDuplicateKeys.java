@@ -0,0 +1,231 @@
+package de.gbv.reposis.vzg;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.jdom2.Element;
+import org.mycore.common.MCRConstants;
+
+/**
+ * Keys for finding possible duplicates of a MODS document in the Solr field
+ * {@value #SOLR_FIELD}. Titles are folded (case, umlauts, diacritics, punctuation) and split into
+ * character shingles, whose MinHash signature is cut into {@value #BANDS} bands of {@value #ROWS}
+ * values. Two titles share at least one band key with a probability of about 50% at a shingle
+ * similarity of 40%, and almost surely above 70%. ISBNs, DOIs and PPNs are normalized into
+ * identifier keys. The keys are indexed by {@code vzg-solr.xsl}, which calls the static methods of
+ * this class as Xalan extension, and computed for the imported document by
+ * {@link VZGDuplicateSearch}.
+ */
+public final class VZGDuplicateKeys {
+
+  public static final String SOLR_FIELD = "vzg.duplicate.key";
+
+  static final String TITLE_KEY_PREFIX = "t";
+
+  private static final int BANDS = 12;
+
+  private static final int ROWS = 3;
+
+  private static final int SHINGLE_LENGTH = 3;
+
+  private static final int MAX_TITLES = 3;
+
+  private static final String PPN_PREFIX = "gvk:ppn:";
+
+  private VZGDuplicateKeys() {
+  }
+
+  /**
+   * Get the keys of a MODS document: the title keys of its first three titles, each with and
+   * without subtitle, and the keys of its identifiers.
+   *
+   * @param mods the {@code mods:mods} element
+   * @return the distinct keys
+   */
+  public static Set<String> getKeys(Element mods) {
+    Set<String> keys = new LinkedHashSet<>();
+    mods.getChildren("titleInfo", MCRConstants.MODS_NAMESPACE).stream()
+        .filter(titleInfo -> titleInfo.getChild("title", MCRConstants.MODS_NAMESPACE) != null)
+        .limit(MAX_TITLES)
+        .forEach(titleInfo -> addKeys(keys, getTitleKeys(
+            titleInfo.getChildText("title", MCRConstants.MODS_NAMESPACE),
+            titleInfo.getChildText("subTitle", MCRConstants.MODS_NAMESPACE))));
+    for (Element identifier : mods.getChildren("identifier", MCRConstants.MODS_NAMESPACE)) {
+      addKeys(keys, getIdentifierKey(identifier.getAttributeValue("type"), identifier.getText()));
+    }
+    return keys;
+  }
+
+  private static void addKeys(Set<String> keys, String spaceSeparatedKeys) {
+    for (String key : spaceSeparatedKeys.split(" ")) {
+      if (!key.isEmpty()) {
+        keys.add(key);
+      }
+    }
+  }
+
+  /**
+   * Get the band keys of a title, once without and, if present, once with the subtitle.
+   *
+   * @param title the main title
+   * @param subTitle the subtitle or an empty string
+   * @return the space separated keys, empty if the title contains no letters or digits
+   */
+  public static String getTitleKeys(String title, String subTitle) {
+    Set<String> keys = new LinkedHashSet<>(getBandKeys(normalizeTitle(title)));
+    if (subTitle != null && !normalizeTitle(subTitle).isEmpty()) {
+      keys.addAll(getBandKeys(normalizeTitle(title + " " + subTitle)));
+    }
+    return String.join(" ", keys);
+  }
+
+  /**
+   * Get the key of an identifier.
+   *
+   * @param type the type of the identifier
+   * @param value the identifier
+   * @return the key of ISBNs, DOIs and PPN URIs, otherwise an empty string
+   */
+  public static String getIdentifierKey(String type, String value) {
+    if (type == null || value == null) {
+      return "";
+    }
+    String identifier = value.trim();
+    return switch (type) {
+      case "isbn" -> {
+        String isbn = normalizeISBN(identifier);
+        yield isbn == null ? "" : "isbn:" + isbn;
+      }
+      case "doi" -> {
+        String doi = normalizeDOI(identifier);
+        yield doi == null ? "" : "doi:" + doi;
+      }
+      case "uri" -> identifier.contains(PPN_PREFIX)
+          ? "ppn:" + identifier.substring(identifier.indexOf(PPN_PREFIX) + PPN_PREFIX.length())
+              .toUpperCase(Locale.ROOT)
+          : "";
+      case "ppn" -> "ppn:" + identifier.toUpperCase(Locale.ROOT);
+      default -> "";
+    };
+  }
+
+  /**
+   * @param ppn a PPN
+   * @return the key of the PPN
+   */
+  public static String getPPNKey(String ppn) {
+    return getIdentifierKey("ppn", ppn);
+  }
+
+  /**
+   * Fold a title to lower case words of letters and digits, with umlauts written as two letters
+   * and without diacritics, separated by single spaces.
+   */
+  static String normalizeTitle(String title) {
+    if (title == null) {
+      return "";
+    }
+    // umlauts are only folded in composed form
+    String folded = Normalizer.normalize(title, Normalizer.Form.NFC).toLowerCase(Locale.ROOT)
+        .replace("ä", "ae").replace("ö", "oe").replace("ü", "ue").replace("ß", "ss");
+    folded = Normalizer.normalize(folded, Normalizer.Form.NFD);
+    StringBuilder normalized = new StringBuilder(folded.length());
+    for (int i = 0; i < folded.length(); i++) {
+      char c = folded.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        continue;
+      }
+      if (Character.isLetterOrDigit(c)) {
+        normalized.append(c);
+      } else if (!normalized.isEmpty() && normalized.charAt(normalized.length() - 1) != ' ') {
+        normalized.append(' ');
+      }
+    }
+    int end = normalized.length();
+    return end > 0 && normalized.charAt(end - 1) == ' ' ? normalized.substring(0, end - 1)
+        : normalized.toString();
+  }
+
+  static List<String> getBandKeys(String normalizedTitle) {
+    if (normalizedTitle.isEmpty()) {
+      return List.of();
+    }
+    long[] signature = new long[BANDS * ROWS];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    // shingles span word boundaries, short titles form a single shingle
+    int shingles = Math.max(1, normalizedTitle.length() - SHINGLE_LENGTH + 1);
+    for (int start = 0; start < shingles; start++) {
+      long shingleHash = hash(normalizedTitle, start,
+          Math.min(normalizedTitle.length(), start + SHINGLE_LENGTH));
+      for (int i = 0; i < signature.length; i++) {
+        signature[i] = Math.min(signature[i], mix(shingleHash + (i + 1) * 0x9E3779B97F4A7C15L));
+      }
+    }
+    List<String> keys = new ArrayList<>(BANDS);
+    for (int band = 0; band < BANDS; band++) {
+      long bandHash = band;
+      for (int row = 0; row < ROWS; row++) {
+        bandHash = mix(bandHash * 31 + signature[band * ROWS + row]);
+      }
+      keys.add(TITLE_KEY_PREFIX + band + "_" + Long.toHexString(bandHash >>> 16));
+    }
+    return keys;
+  }
+
+  /**
+   * FNV-1a hash of the characters.
+   */
+  private static long hash(String s, int start, int end) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = start; i < end; i++) {
+      hash ^= s.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * The finalizer of SplitMix64, spreads the bits of the value.
+   */
+  private static long mix(long value) {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  static String normalizeISBN(String isbn) {
+    StringBuilder digits = new StringBuilder(13);
+    for (int i = 0; i < isbn.length(); i++) {
+      char c = isbn.charAt(i);
+      if (Character.isDigit(c) || ((c == 'X' || c == 'x') && digits.length() == 9)) {
+        digits.append(Character.toUpperCase(c));
+      } else if (Character.isLetter(c) && !digits.isEmpty()) {
+        // qualifiers like "(pbk.)" follow the ISBN
+        break;
+      }
+    }
+    if (digits.length() == 13) {
+      return digits.toString();
+    }
+    if (digits.length() != 10) {
+      return null;
+    }
+    String isbn13 = "978" + digits.substring(0, 9);
+    int sum = 0;
+    for (int i = 0; i < 12; i++) {
+      sum += (isbn13.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+    }
+    return isbn13 + (10 - sum % 10) % 10;
+  }
+
+  static String normalizeDOI(String doi) {
+    String normalized = doi.toLowerCase(Locale.ROOT);
+    int start = normalized.indexOf("10.");
+    return start < 0 ? null : normalized.substring(start);
+  }
+}
@@ -0,0 +1,165 @@
+package de.gbv.reposis.vzg;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.mycore.common.MCRException;
+import org.mycore.datamodel.metadata.MCRObjectID;
+import org.mycore.mods.MCRMODSWrapper;
+import org.mycore.solr.MCRSolrCoreManager;
+import org.mycore.solr.MCRSolrUtils;
+import org.mycore.solr.auth.MCRSolrAuthenticationLevel;
+import org.mycore.solr.auth.MCRSolrAuthenticationManager;
+
+/**
+ * Searches MODS objects which may be duplicates of a document imported by PPN. Candidates share
+ * at least one {@link VZGDuplicateKeys duplicate key} with the document, a title band or an
+ * identifier, and are ranked by the number of shared keys, identifiers weighing as much as all
+ * title bands. Solr ranks the candidates by the same weights with constant score clauses, so the
+ * limited number of fetched candidates are the best ones. Objects indexed without duplicate keys
+ * are only found by their PPN URI. The candidates are returned as
+ * {@link VZGDuplicateSummary summaries} from the same Solr query, no object is loaded.
+ */
+public class VZGDuplicateSearch {
+
+  public static final String PPN_URI_PREFIX = "https://uri.gbv.de/document/gvk:ppn:";
+
+  private static final int MAX_DUPLICATES = 10;
+
+  // candidates fetched per document, before ranking
+  private static final int MAX_CANDIDATES = 50;
+
+  /**
+   * The score of a shared identifier, the score of a shared title band is 1.
+   */
+  public static final int IDENTIFIER_WEIGHT = 12;
+
+  private static final String IDENTIFIER_FIELD = "mods.identifier";
+
+  /**
+   * Search the possible duplicates of one document.
+   *
+   * @param mods the MODS of the document
+   * @param ppn the PPN of the document
+   * @return the summaries of at most ten possible duplicates, best match first
+   */
+  public List<VZGDuplicateSummary> search(MCRMODSWrapper mods, String ppn) {
+    return searchScored(mods, ppn).stream().map(ScoredSummary::summary).toList();
+  }
+
+  private List<ScoredSummary> searchScored(MCRMODSWrapper mods, String ppn) {
+    Set<String> keys = new LinkedHashSet<>(VZGDuplicateKeys.getKeys(mods.getMODS()));
+    keys.add(VZGDuplicateKeys.getPPNKey(ppn));
+
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add(CommonParams.Q, getQuery(keys, ppn));
+    params.add(CommonParams.SORT, "score desc");
+    params.add(CommonParams.FL, "id," + VZGDuplicateKeys.SOLR_FIELD + "," + IDENTIFIER_FIELD + ","
+        + VZGDuplicateSummary.FIELD_LIST);
+    params.add(CommonParams.ROWS, Integer.toString(MAX_CANDIDATES));
+    params.add(CommonParams.FQ, "objectType:mods");
+
+    List<ScoredSummary> candidates = new ArrayList<>();
+    for (SolrDocument result : query(params)) {
+      MCRObjectID objectID = getObjectID(result);
+      if (objectID == null) {
+        continue;
+      }
+      Set<String> resultKeys = new HashSet<>(getValues(result, VZGDuplicateKeys.SOLR_FIELD));
+      getValues(result, IDENTIFIER_FIELD).stream()
+          .map(identifier -> VZGDuplicateKeys.getIdentifierKey("uri", identifier))
+          .filter(key -> !key.isEmpty()).forEach(resultKeys::add);
+      int score = getScore(keys, resultKeys);
+      if (score > 0) {
+        candidates.add(new ScoredSummary(VZGDuplicateSummary.of(objectID, result), score));
+      }
+    }
+    return candidates.stream()
+        .sorted(Comparator.comparingInt(ScoredSummary::score).reversed())
+        .limit(MAX_DUPLICATES).toList();
+  }
+
+  /**
+   * Search the possible duplicates of many documents, with one Solr query per document, so the
+   * candidates of one document cannot crowd out those of another.
+   *
+   * @param modsByPPN the MODS of the documents by their PPN
+   * @return the summaries of at most ten possible duplicates by PPN with their score, best match
+   *     first, every PPN is contained
+   */
+  public Map<String, List<ScoredSummary>> searchAll(Map<String, MCRMODSWrapper> modsByPPN) {
+    Map<String, List<ScoredSummary>> duplicates = new LinkedHashMap<>();
+    modsByPPN.forEach((ppn, mods) -> duplicates.put(ppn, searchScored(mods, ppn)));
+    return duplicates;
+  }
+
+  /**
+   * Build a query whose score is the weighted number of shared keys, the clauses of a document
+   * stay far below the maximum number of boolean clauses.
+   */
+  private static String getQuery(Set<String> keys, String ppn) {
+    StringBuilder query = new StringBuilder();
+    for (String key : keys) {
+      query.append(VZGDuplicateKeys.SOLR_FIELD).append(':')
+          .append(MCRSolrUtils.escapeSearchValue(key)).append("^=").append(getWeight(key))
+          .append(" OR ");
+    }
+    return query.append(IDENTIFIER_FIELD).append(':')
+        .append(MCRSolrUtils.escapeSearchValue(PPN_URI_PREFIX + ppn))
+        .append("^=").append(IDENTIFIER_WEIGHT).toString();
+  }
+
+  static int getScore(Set<String> keys, Set<String> resultKeys) {
+    int score = 0;
+    for (String key : resultKeys) {
+      if (keys.contains(key)) {
+        score += getWeight(key);
+      }
+    }
+    return score;
+  }
+
+  private static int getWeight(String key) {
+    return key.startsWith(VZGDuplicateKeys.TITLE_KEY_PREFIX) ? 1 : IDENTIFIER_WEIGHT;
+  }
+
+  private static List<String> getValues(SolrDocument result, String field) {
+    Collection<Object> values = result.getFieldValues(field);
+    return values == null ? List.of() : values.stream().map(Object::toString).toList();
+  }
+
+  private static MCRObjectID getObjectID(SolrDocument result) {
+    return result.getFieldValue("id") instanceof String id && MCRObjectID.isValid(id)
+        ? MCRObjectID.getInstance(id) : null;
+  }
+
+  private static List<SolrDocument> query(ModifiableSolrParams params) {
+    // the keys of a document may not fit into the URL of a GET request
+    QueryRequest queryRequest = new QueryRequest(params, SolrRequest.METHOD.POST);
+    MCRSolrAuthenticationManager.obtainInstance()
+        .applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
+    try {
+      return queryRequest.process(MCRSolrCoreManager.getMainSolrClient()).getResults();
+    } catch (Exception e) {
+      throw new MCRException("Error querying Solr for duplicates", e);
+    }
+  }
+
+  /**
+   * @param summary the possible duplicate
+   * @param score the weighted number of shared keys, see {@link #IDENTIFIER_WEIGHT}
+   */
+  public record ScoredSummary(VZGDuplicateSummary summary, int score) {
+  }
+}
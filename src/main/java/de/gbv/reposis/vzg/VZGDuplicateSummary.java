@@ -0,0 +1,107 @@
+package de.gbv.reposis.vzg;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.solr.common.SolrDocument;
+import org.jdom2.Element;
+import org.mycore.datamodel.metadata.MCRObjectID;
+
+/**
+ * The display fields of a possible duplicate, read from its Solr document, so the confirmation
+ * page of the PPN import does not load the objects. The fields are indexed by {@code vzg-solr.xsl}.
+ *
+ * @param id the object ID
+ * @param title the title with non sort part and subtitle or null
+ * @param authors the personal names, formatted as "family, given"
+ * @param year the year of publication or null
+ * @param publisher the place and publisher or null
+ * @param genre the category ID of the genre or null
+ * @param state the category ID of the state or null
+ * @param identifiers the identifiers, formatted as "type:value"
+ * @param contentDerivate the ID of the content derivate or null
+ * @param mainDoc the main file of the content derivate or null
+ */
+public record VZGDuplicateSummary(MCRObjectID id, String title, List<String> authors, String year,
+    String publisher, String genre, String state, List<String> identifiers, String contentDerivate,
+    String mainDoc) {
+
+  static final String FIELD_PREFIX = "vzg.summary.";
+
+  static final String IDENTIFIER_FIELD_PREFIX = "mods.identifier.type.";
+
+  /**
+   * The Solr fields to request for {@link #of(MCRObjectID, SolrDocument)}.
+   */
+  static final String FIELD_LIST =
+      FIELD_PREFIX + "*," + IDENTIFIER_FIELD_PREFIX + "*,vzg.content.derivate,vzg.content.maindoc";
+
+  public VZGDuplicateSummary {
+    authors = List.copyOf(authors);
+    identifiers = List.copyOf(identifiers);
+  }
+
+  /**
+   * @param id the object ID
+   * @param result the Solr document of the object
+   * @return the summary, with null fields for documents indexed before the summary fields existed
+   */
+  static VZGDuplicateSummary of(MCRObjectID id, SolrDocument result) {
+    List<String> identifiers = new ArrayList<>();
+    for (String field : result.getFieldNames()) {
+      if (field.startsWith(IDENTIFIER_FIELD_PREFIX)) {
+        String type = field.substring(IDENTIFIER_FIELD_PREFIX.length());
+        getValues(result, field).forEach(value -> identifiers.add(type + ":" + value));
+      }
+    }
+    return new VZGDuplicateSummary(id, getValue(result, FIELD_PREFIX + "title"),
+        getValues(result, FIELD_PREFIX + "author"), getValue(result, FIELD_PREFIX + "year"),
+        getValue(result, FIELD_PREFIX + "publisher"), getValue(result, FIELD_PREFIX + "genre"),
+        getValue(result, FIELD_PREFIX + "state"), identifiers,
+        getValue(result, "vzg.content.derivate"), getValue(result, "vzg.content.maindoc"));
+  }
+
+  private static String getValue(SolrDocument result, String field) {
+    Object value = result.getFirstValue(field);
+    return value == null ? null : value.toString();
+  }
+
+  private static List<String> getValues(SolrDocument result, String field) {
+    Collection<Object> values = result.getFieldValues(field);
+    return values == null ? List.of() : values.stream().map(Object::toString).toList();
+  }
+
+  /**
+   * @return the summary as {@code duplicate} element for {@code confirmImport.xsl}
+   */
+  public Element toXML() {
+    Element duplicate = new Element("duplicate");
+    duplicate.setAttribute("id", id.toString());
+    addChild(duplicate, "title", title);
+    authors.forEach(author -> addChild(duplicate, "author", author));
+    addChild(duplicate, "year", year);
+    addChild(duplicate, "publisher", publisher);
+    addChild(duplicate, "genre", genre);
+    addChild(duplicate, "state", state);
+    for (String identifier : identifiers) {
+      int separator = identifier.indexOf(':');
+      duplicate.addContent(new Element("identifier")
+          .setAttribute("type", identifier.substring(0, separator))
+          .setText(identifier.substring(separator + 1)));
+    }
+    if (contentDerivate != null) {
+      Element content = new Element("content").setAttribute("derivate", contentDerivate);
+      if (mainDoc != null) {
+        content.setAttribute("maindoc", mainDoc);
+      }
+      duplicate.addContent(content);
+    }
+    return duplicate;
+  }
+
+  private static void addChild(Element parent, String name, String value) {
+    if (value != null && !value.isEmpty()) {
+      parent.addContent(new Element(name).setText(value));
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package de.gbv.reposis.vzg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.jdom2.Element;
+import org.mycore.common.MCRConstants;
+import org.mycore.datamodel.metadata.MCRObject;
+import org.mycore.mods.MCRMODSWrapper;
+
+/**
+ * The identifiers of a MODS document needed for the PICA+ patch, extracted in a single pass over
+ * the {@code mods:identifier} children instead of one XPath evaluation per lookup.
+ *
+ * @param urns the non-blank URN identifiers in document order
+ * @param uri the normalized text of the first URI identifier or null
+ * @param ppn the PPN contained in the first URI identifier or null
+ */
+public record VZGModsIdentifiers(List<String> urns, String uri, String ppn) {
+
+  private static final String PPN_PREFIX = "gvk:ppn:";
+
+  public VZGModsIdentifiers {
+    urns = List.copyOf(urns);
+  }
+
+  /**
+   * Extract the identifiers of a MODS object.
+   *
+   * @param obj the mycore object
+   * @return the identifiers, empty if the object has no MODS metadata
+   */
+  public static VZGModsIdentifiers of(MCRObject obj) {
+    Element mods = new MCRMODSWrapper(obj).getMODS();
+    return mods == null ? new VZGModsIdentifiers(List.of(), null, null) : of(mods);
+  }
+
+  /**
+   * Extract the identifiers of a {@code mods:mods} element.
+   *
+   * @param mods the mods element
+   * @return the identifiers
+   */
+  public static VZGModsIdentifiers of(Element mods) {
+    List<String> urns = new ArrayList<>(1);
+    String uri = null;
+    for (Element identifier : mods.getChildren("identifier", MCRConstants.MODS_NAMESPACE)) {
+      String type = identifier.getAttributeValue("type");
+      if ("urn".equals(type)) {
+        String urn = identifier.getTextTrim();
+        if (!urn.isBlank()) {
+          urns.add(urn);
+        }
+      } else if ("uri".equals(type) && uri == null) {
+        uri = identifier.getTextNormalize();
+      }
+    }
+    return new VZGModsIdentifiers(urns, uri, getPPN(uri));
+  }
+
+  private static String getPPN(String uri) {
+    if (uri == null || !uri.contains(PPN_PREFIX)) {
+      return null;
+    }
+    return uri.substring(uri.indexOf(PPN_PREFIX) + PPN_PREFIX.length());
+  }
+
+  public Optional<String> getPPN() {
+    return Optional.ofNullable(ppn);
+  }
+
+  public Optional<String> getFirstUrn() {
+    return urns.stream().findFirst();
+  }
+}
@@ -0,0 +1,178 @@
+package de.gbv.reposis.vzg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Uploads files to a public Nextcloud share via WebDAV. The client keeps a connection pool for
+ * its whole lifetime and retries uploads failing with an I/O error, 429 or a 5xx status with an
+ * exponential backoff. The entity is sent again on every attempt, so it has to be repeatable.
+ */
+public class VZGNextcloudClient implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final int MAX_CONNECTIONS = 4;
+
+  private static final TimeValue CONNECTION_TIME_TO_LIVE = TimeValue.ofMinutes(10);
+
+  private static final TimeValue KEEP_ALIVE = TimeValue.ofMinutes(1);
+
+  private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+  private final String shareURL;
+
+  private final int maxRetries;
+
+  private final Duration initialBackoff;
+
+  private final CloseableHttpClient httpClient;
+
+  /**
+   * @param nextcloudURL the base URL of the Nextcloud instance
+   * @param shareToken the token of the public share
+   * @param connectTimeout timeout for establishing a connection
+   * @param responseTimeout timeout for waiting on data of the response
+   * @param maxRetries number of retries after the first failed attempt
+   * @param initialBackoff delay before the first retry, doubled for every further retry
+   */
+  public VZGNextcloudClient(String nextcloudURL, String shareToken, Duration connectTimeout,
+      Duration responseTimeout, int maxRetries, Duration initialBackoff) {
+    String baseUrl = nextcloudURL;
+    if (baseUrl.endsWith("/")) {
+      baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+    }
+    // Nextcloud Public WebDAV Upload URL
+    // Format: https://nextcloud.example.com/public.php/dav/files/{share_token}/{filename}
+    this.shareURL = baseUrl + "/public.php/dav/files/" + shareToken + "/";
+    this.maxRetries = maxRetries;
+    this.initialBackoff = initialBackoff;
+
+    PoolingHttpClientConnectionManager connectionManager =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setSocketTimeout(Timeout.of(responseTimeout))
+                .setTimeToLive(CONNECTION_TIME_TO_LIVE)
+                .build())
+            .setMaxConnTotal(MAX_CONNECTIONS)
+            .setMaxConnPerRoute(MAX_CONNECTIONS)
+            .build();
+
+    this.httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+            .setResponseTimeout(Timeout.of(responseTimeout))
+            .setConnectionKeepAlive(KEEP_ALIVE)
+            .build())
+        .evictExpiredConnections()
+        .evictIdleConnections(KEEP_ALIVE)
+        // retries are handled by upload(), which also covers 429 and 5xx responses
+        .disableAutomaticRetries()
+        .build();
+  }
+
+  /**
+   * Upload a file to the share, retrying transient failures.
+   *
+   * @param fileName the name of the file in the share
+   * @param entity the repeatable content of the file
+   * @return true if the file was stored, false otherwise
+   */
+  public boolean upload(String fileName, HttpEntity entity) {
+    for (int attempt = 0; ; attempt++) {
+      Duration retryDelay;
+      try {
+        UploadResult result = put(fileName, entity);
+        if (result.stored()) {
+          LOGGER.info("Successfully uploaded file to Nextcloud: {}", fileName);
+          return true;
+        }
+        if (!isRetryable(result.statusCode()) || attempt >= maxRetries) {
+          LOGGER.error("Failed to upload file {} to Nextcloud. HTTP Status: {}", fileName,
+              result.statusCode());
+          return false;
+        }
+        LOGGER.warn("Uploading file {} to Nextcloud failed with HTTP Status {}, retrying.",
+            fileName, result.statusCode());
+        retryDelay = result.retryAfter() != null ? result.retryAfter() : getBackoff(attempt);
+      } catch (IOException e) {
+        if (attempt >= maxRetries) {
+          LOGGER.error("Error uploading file {} to Nextcloud", fileName, e);
+          return false;
+        }
+        LOGGER.warn("Error uploading file {} to Nextcloud, retrying.", fileName, e);
+        retryDelay = getBackoff(attempt);
+      }
+
+      try {
+        Thread.sleep(retryDelay.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOGGER.error("Interrupted while waiting to retry the upload of file {}.", fileName);
+        return false;
+      }
+    }
+  }
+
+  private UploadResult put(String fileName, HttpEntity entity) throws IOException {
+    HttpPut httpPut = new HttpPut(shareURL + fileName);
+    httpPut.setEntity(entity);
+    return httpClient.execute(httpPut, response -> {
+      int statusCode = response.getCode();
+      // WebDAV PUT gibt 201 Created oder 204 No Content zurück
+      boolean stored =
+          statusCode == HttpStatus.SC_CREATED || statusCode == HttpStatus.SC_NO_CONTENT;
+      return new UploadResult(stored, statusCode, getRetryAfter(response.getFirstHeader(
+          HttpHeaders.RETRY_AFTER)));
+    });
+  }
+
+  private static boolean isRetryable(int statusCode) {
+    return statusCode == HttpStatus.SC_TOO_MANY_REQUESTS
+        || statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+  }
+
+  private Duration getBackoff(int attempt) {
+    Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt, 16));
+    return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+  }
+
+  private static Duration getRetryAfter(Header retryAfter) {
+    if (retryAfter == null) {
+      return null;
+    }
+    try {
+      long seconds = Long.parseLong(retryAfter.getValue().trim());
+      return Duration.ofSeconds(Math.max(0, Math.min(seconds, MAX_BACKOFF.toSeconds())));
+    } catch (NumberFormatException e) {
+      // HTTP date values are not used by Nextcloud, fall back to the backoff
+      return null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+
+  private record UploadResult(boolean stored, int statusCode, Duration retryAfter) {
+  }
+}
@@ -0,0 +1,374 @@
+package de.gbv.reposis.vzg;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jdom2.Element;
+import org.mycore.access.MCRAccessException;
+import org.mycore.common.MCRSessionMgr;
+import org.mycore.common.MCRTransactionManager;
+import org.mycore.common.MCRUserInformation;
+import org.mycore.common.xml.MCRURIResolver;
+import org.mycore.datamodel.metadata.MCRMetadataManager;
+import org.mycore.datamodel.metadata.MCRObjectID;
+import org.mycore.mods.MCRMODSWrapper;
+import org.mycore.util.concurrent.MCRFixedUserRunnable;
+
+/**
+ * Imports a list of PPNs without the interactive duplicate check of the PPN import. The PICA-XML
+ * records are fetched and converted with {@code pica2mods} by a bounded pool of threads, while the
+ * documents converted so far are checked for duplicates and created batch by batch. Documents
+ * with a duplicate candidate of at least the minimum score are not created, every other document
+ * is created and committed in its own transaction, so a failure only affects the object that
+ * caused it. Candidates below the minimum score are reported as possible duplicates.
+ */
+public class VZGPPNBulkImport {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * The default minimum score of a duplicate, half of the title bands or a shared identifier.
+   */
+  public static final int DEFAULT_MIN_SCORE = 6;
+
+  private final int parallelism;
+
+  private final int batchSize;
+
+  private final int minScore;
+
+  private final Supplier<Steps<?>> steps;
+
+  /**
+   * @param projectID the project ID of the new objects
+   * @param parallelism the number of records fetched and converted at the same time
+   * @param batchSize the number of documents checked and created while the next are converted
+   * @param minScore the minimum score of a candidate that prevents the creation, see
+   *     {@link VZGDuplicateSearch.ScoredSummary#score()}
+   */
+  public VZGPPNBulkImport(String projectID, int parallelism, int batchSize, int minScore) {
+    this(parallelism, batchSize, minScore, () -> new ObjectSteps(projectID,
+        MCRSessionMgr.getCurrentSession().getUserInformation()));
+  }
+
+  VZGPPNBulkImport(int parallelism, int batchSize, int minScore, Supplier<Steps<?>> steps) {
+    this.parallelism = Math.max(1, parallelism);
+    this.batchSize = Math.max(1, batchSize);
+    this.minScore = Math.max(1, minScore);
+    this.steps = steps;
+  }
+
+  /**
+   * Import the PPNs as the current user.
+   *
+   * @param ppns the PPNs
+   * @return the result of every PPN, in the given order
+   */
+  public List<Result> run(List<String> ppns) {
+    Result[] results = new Result[ppns.size()];
+    List<String> importPPNs = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < ppns.size(); i++) {
+      String ppn = ppns.get(i);
+      if (!VZGPicaXMLCache.isValidPPN(ppn)) {
+        results[i] = Result.failed(ppn, "invalid PPN");
+      } else if (!seen.add(ppn)) {
+        results[i] = new Result(ppn, Status.DUPLICATE, null, List.of(), "listed more than once");
+      } else {
+        importPPNs.add(ppn);
+      }
+    }
+
+    Map<String, Result> importResults = run(importPPNs, steps.get());
+
+    for (int i = 0; i < results.length; i++) {
+      if (results[i] == null) {
+        results[i] = importResults.get(ppns.get(i));
+      }
+    }
+    List<Result> resultList = List.of(results);
+    LOGGER.info("Imported PPNs: {}", resultList.stream()
+        .collect(Collectors.groupingBy(Result::status, Collectors.counting())));
+    return resultList;
+  }
+
+  private <T> Map<String, Result> run(List<String> importPPNs, Steps<T> steps) {
+    Map<String, Result> importResults = new LinkedHashMap<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+        Thread.ofVirtual().name("vzg-ppn-import-", 0).factory())) {
+      List<CompletableFuture<T>> conversions = new ArrayList<>(importPPNs.size());
+      for (int start = 0; start < importPPNs.size(); start += batchSize) {
+        // keep the conversion of the next batch running while this batch is stored
+        int submitEnd = Math.min(importPPNs.size(), start + 2 * batchSize);
+        for (int i = conversions.size(); i < submitEnd; i++) {
+          String ppn = importPPNs.get(i);
+          conversions.add(CompletableFuture.supplyAsync(() -> steps.convert(ppn), executor));
+        }
+        int end = Math.min(importPPNs.size(), start + batchSize);
+        importBatch(steps, importPPNs.subList(start, end), conversions.subList(start, end),
+            importResults);
+        conversions.subList(start, end).replaceAll(conversion -> null);
+        LOGGER.info("Imported {} of {} PPNs", end, importPPNs.size());
+      }
+    }
+    return importResults;
+  }
+
+  private <T> void importBatch(Steps<T> steps, List<String> ppns,
+      List<CompletableFuture<T>> conversions, Map<String, Result> results) {
+    Map<String, T> converted = new LinkedHashMap<>();
+    for (int i = 0; i < ppns.size(); i++) {
+      String ppn = ppns.get(i);
+      try {
+        converted.put(ppn, conversions.get(i).join());
+      } catch (RuntimeException e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null
+            ? e.getCause() : e;
+        LOGGER.warn("Could not convert PPN {}", ppn, cause);
+        results.put(ppn, Result.failed(ppn, "conversion failed: " + cause.getMessage()));
+      }
+    }
+
+    Map<String, List<Candidate>> duplicates;
+    try {
+      duplicates = steps.searchDuplicates(converted);
+    } catch (RuntimeException e) {
+      LOGGER.error("Could not search duplicates of PPNs {}", converted.keySet(), e);
+      converted.keySet().forEach(ppn -> results.put(ppn,
+          Result.failed(ppn, "duplicate search failed: " + e.getMessage())));
+      return;
+    }
+
+    converted.forEach((ppn, document) -> {
+      List<Candidate> candidates = duplicates.get(ppn);
+      List<String> ppnDuplicates = candidates.stream()
+          .filter(candidate -> candidate.score() >= minScore).map(Candidate::id).toList();
+      if (!ppnDuplicates.isEmpty()) {
+        results.put(ppn, new Result(ppn, Status.DUPLICATE, null, ppnDuplicates, null));
+      } else {
+        results.put(ppn, create(steps, ppn, document,
+            candidates.stream().map(Candidate::id).toList()));
+      }
+    });
+  }
+
+  /**
+   * Create and commit the object of a document. The metadata store and the search index are not
+   * part of the transaction, so after a rollback the result reports whether the object was
+   * stored anyway.
+   */
+  private static <T> Result create(Steps<T> steps, String ppn, T document,
+      List<String> possibleDuplicates) {
+    try {
+      steps.create(document);
+      steps.commit();
+      return new Result(ppn, Status.CREATED, steps.getId(document), possibleDuplicates,
+          possibleDuplicates.isEmpty() ? null : "possible duplicates");
+    } catch (MCRAccessException | RuntimeException e) {
+      LOGGER.warn("Could not create object of PPN {}", ppn, e);
+      try {
+        steps.rollback();
+      } catch (RuntimeException rollbackException) {
+        LOGGER.error("Could not roll back the object of PPN {}", ppn, rollbackException);
+      }
+      if (steps.isStored(document)) {
+        return new Result(ppn, Status.CREATED, steps.getId(document), List.of(),
+            "stored, but the transaction failed: " + e.getMessage());
+      }
+      return Result.failed(ppn, "creation failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Write the results as CSV with the columns {@code ppn}, {@code status}, {@code id},
+   * {@code duplicates} and {@code message}.
+   *
+   * @param results the results
+   * @param out the target
+   * @throws IOException if the results could not be written
+   */
+  public static void writeReport(List<Result> results, Writer out) throws IOException {
+    out.write("ppn,status,id,duplicates,message\r\n");
+    for (Result result : results) {
+      writeCsvField(result.ppn(), out);
+      out.write(',');
+      writeCsvField(result.status().name(), out);
+      out.write(',');
+      writeCsvField(result.objectID(), out);
+      out.write(',');
+      writeCsvField(String.join(" ", result.duplicates()), out);
+      out.write(',');
+      writeCsvField(result.message(), out);
+      out.write("\r\n");
+    }
+  }
+
+  private static void writeCsvField(String value, Writer out) throws IOException {
+    if (value == null) {
+      return;
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    out.write(value.replace("\"", "\"\""));
+    out.write('"');
+  }
+
+  public enum Status {
+    CREATED, DUPLICATE, FAILED
+  }
+
+  /**
+   * @param ppn the PPN as given
+   * @param status the outcome
+   * @param objectID the ID of the created object or null
+   * @param duplicates the duplicates which prevented the creation, or the possible duplicates
+   *     below the minimum score of a created object
+   * @param message the reason of a failure, a note on possible duplicates or null
+   */
+  public record Result(String ppn, Status status, String objectID, List<String> duplicates,
+      String message) {
+
+    static Result failed(String ppn, String message) {
+      return new Result(ppn, Status.FAILED, null, List.of(), message);
+    }
+  }
+
+  /**
+   * @param id the object ID of a possible duplicate
+   * @param score the weighted number of shared duplicate keys
+   */
+  record Candidate(String id, int score) {
+  }
+
+  /**
+   * The steps of the import of a single document.
+   *
+   * @param <T> the converted document
+   */
+  interface Steps<T> {
+
+    /**
+     * Fetch and convert the record of a PPN, called by the threads of the import.
+     */
+    T convert(String ppn);
+
+    /**
+     * @return the possible duplicates of every document by its PPN
+     */
+    Map<String, List<Candidate>> searchDuplicates(Map<String, T> documentsByPPN);
+
+    void create(T document) throws MCRAccessException;
+
+    /**
+     * @return the ID of a created document
+     */
+    String getId(T document);
+
+    /**
+     * @return true if the document is in the metadata store, even if its creation failed
+     */
+    boolean isStored(T document);
+
+    /**
+     * Commit the current transaction and begin a new one.
+     */
+    void commit();
+
+    /**
+     * Roll back the current transaction and begin a new one.
+     */
+    void rollback();
+  }
+
+  /**
+   * Creates MyCoRe objects from the {@code pica2mods} conversion of the records.
+   */
+  private static final class ObjectSteps implements Steps<MCRMODSWrapper> {
+
+    private final String projectID;
+
+    private final MCRUserInformation user;
+
+    private final VZGDuplicateSearch duplicateSearch = new VZGDuplicateSearch();
+
+    ObjectSteps(String projectID, MCRUserInformation user) {
+      this.projectID = projectID;
+      this.user = user;
+    }
+
+    @Override
+    public MCRMODSWrapper convert(String ppn) {
+      AtomicReference<Element> mods = new AtomicReference<>();
+      new MCRFixedUserRunnable(() -> mods.set(MCRURIResolver.obtainInstance()
+          .resolve("xslTransform:pica2mods:" + VZGUnAPIResolver.SCHEME + ppn)), user).run();
+      return new MCRMODSWrapper(MCRMODSWrapper.wrapMODSDocument(mods.get(), projectID));
+    }
+
+    @Override
+    public Map<String, List<Candidate>> searchDuplicates(
+        Map<String, MCRMODSWrapper> documentsByPPN) {
+      Map<String, List<Candidate>> duplicates = new LinkedHashMap<>();
+      duplicateSearch.searchAll(documentsByPPN).forEach((ppn, summaries) -> duplicates.put(ppn,
+          summaries.stream().map(summary -> new Candidate(summary.summary().id().toString(),
+              summary.score())).toList()));
+      return duplicates;
+    }
+
+    @Override
+    public void create(MCRMODSWrapper document) throws MCRAccessException {
+      MCRMetadataManager.create(document.getMCRObject());
+    }
+
+    @Override
+    public String getId(MCRMODSWrapper document) {
+      return document.getMCRObject().getId().toString();
+    }
+
+    @Override
+    public boolean isStored(MCRMODSWrapper document) {
+      MCRObjectID id = document.getMCRObject().getId();
+      // the ID is only assigned by the creation
+      return id != null && id.getNumberAsInteger() > 0 && MCRMetadataManager.exists(id);
+    }
+
+    @Override
+    public void commit() {
+      try {
+        if (MCRTransactionManager.hasActiveTransactions()) {
+          MCRTransactionManager.commitTransactions();
+        }
+      } finally {
+        MCRTransactionManager.beginTransactions();
+      }
+    }
+
+    @Override
+    public void rollback() {
+      try {
+        if (MCRTransactionManager.hasActiveTransactions()) {
+          MCRTransactionManager.rollbackTransactions();
+        }
+      } finally {
+        MCRTransactionManager.beginTransactions();
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package de.gbv.reposis.vzg;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * Holds the MODS documents of PPN imports awaiting the confirmation of the editor, gzip
+ * compressed and under a random token, so the session only keeps the token. The store is bounded
+ * and entries expire after a time to live; expired and surplus entries are removed whenever an
+ * entry is added or taken, so abandoned imports do not stay on the heap for the life of the
+ * session.
+ */
+public class VZGPendingImportStore {
+
+  private static final int TOKEN_BYTES = 16;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final int maxSize;
+
+  private final long ttlNanos;
+
+  private final LongSupplier clock;
+
+  // insertion order is expiry order, as all entries have the same time to live
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+  /**
+   * @param maxSize the maximum number of pending imports, the oldest are removed first
+   * @param ttl the time a pending import waits for its confirmation
+   */
+  public VZGPendingImportStore(int maxSize, Duration ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  VZGPendingImportStore(int maxSize, Duration ttl, LongSupplier clock) {
+    this.maxSize = Math.max(1, maxSize);
+    this.ttlNanos = ttl.toNanos();
+    this.clock = clock;
+  }
+
+  /**
+   * Stores a MODS document.
+   *
+   * @param mods the {@code mods:mods} element, it is serialized and not modified
+   * @return the token to take the document with
+   */
+  public String put(Element mods) {
+    byte[] compressed = compress(mods);
+    byte[] tokenBytes = new byte[TOKEN_BYTES];
+    random.nextBytes(tokenBytes);
+    String token = HexFormat.of().formatHex(tokenBytes);
+    long now = clock.getAsLong();
+    synchronized (entries) {
+      removeExpired(now);
+      entries.put(token, new Entry(compressed, now + ttlNanos));
+      Iterator<String> eldest = entries.keySet().iterator();
+      while (entries.size() > maxSize) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+    return token;
+  }
+
+  /**
+   * Removes a MODS document from the store and returns it, so an import is confirmed only once.
+   *
+   * @param token the token returned by {@link #put(Element)}
+   * @return the MODS document or null if the token is unknown or expired
+   */
+  public Element take(String token) {
+    Entry entry;
+    synchronized (entries) {
+      removeExpired(clock.getAsLong());
+      entry = entries.remove(token);
+    }
+    return entry == null ? null : decompress(entry.mods());
+  }
+
+  /**
+   * Removes a MODS document, e.g. when the editor starts another import.
+   *
+   * @param token the token returned by {@link #put(Element)}
+   */
+  public void remove(String token) {
+    synchronized (entries) {
+      entries.remove(token);
+    }
+  }
+
+  /**
+   * @return the number of pending imports, including expired ones not yet removed
+   */
+  public int getSize() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private void removeExpired(long now) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext() && now - iterator.next().expires() >= 0) {
+      iterator.remove();
+    }
+  }
+
+  private static byte[] compress(Element mods) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      new XMLOutputter(Format.getRawFormat()).output(mods, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Element decompress(byte[] mods) {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(mods))) {
+      Document document = new SAXBuilder().build(in);
+      return document.detachRootElement();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (JDOMException e) {
+      throw new IllegalStateException("Could not parse pending import", e);
+    }
+  }
+
+  private record Entry(byte[] mods, long expires) {
+  }
+}
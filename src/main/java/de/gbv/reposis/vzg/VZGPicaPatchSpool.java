@@ -0,0 +1,189 @@
+package de.gbv.reposis.vzg;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.FileEntity;
+
+/**
+ * Buffer for the content of a PICA+ patch file. Entries are written through {@link #getWriter()}
+ * as they are converted, either into a temporary file or into memory, optionally gzip compressed.
+ * The content is uploaded with the entity returned by {@link #finish()}, which streams the
+ * temporary file from disk, so the patch never exists as a string on the heap.
+ */
+public class VZGPicaPatchSpool implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final ContentType GZIP_CONTENT_TYPE = ContentType.create("application/gzip");
+
+  private final Path file;
+
+  private final SpoolBuffer buffer;
+
+  private final boolean compressed;
+
+  private final CountingWriter writer;
+
+  private VZGPicaPatchSpool(Path file, SpoolBuffer buffer, boolean compressed, OutputStream out)
+      throws IOException {
+    this.file = file;
+    this.buffer = buffer;
+    this.compressed = compressed;
+    OutputStream target = compressed ? new GZIPOutputStream(out, BUFFER_SIZE)
+        : new BufferedOutputStream(out, BUFFER_SIZE);
+    this.writer = new CountingWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Creates a spool which writes the patch into a temporary file.
+   *
+   * @param directory the directory of the temporary file
+   * @param compressed true if the content should be gzip compressed
+   * @return the new spool
+   * @throws IOException if the temporary file could not be created
+   */
+  public static VZGPicaPatchSpool toFile(Path directory, boolean compressed) throws IOException {
+    Path file = Files.createTempFile(directory, "pica_patch_", getFileExtension(compressed));
+    try {
+      return new VZGPicaPatchSpool(file, null, compressed, Files.newOutputStream(file));
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a spool which keeps the patch in memory.
+   *
+   * @param compressed true if the content should be gzip compressed
+   * @return the new spool
+   * @throws IOException if the compression stream could not be initialized
+   */
+  public static VZGPicaPatchSpool inMemory(boolean compressed) throws IOException {
+    SpoolBuffer buffer = new SpoolBuffer();
+    return new VZGPicaPatchSpool(null, buffer, compressed, buffer);
+  }
+
+  private static String getFileExtension(boolean compressed) {
+    return compressed ? ".pp.gz" : ".pp";
+  }
+
+  /**
+   * @return the writer for the PICA+ patch entries
+   */
+  public Writer getWriter() {
+    return writer;
+  }
+
+  /**
+   * @return the number of uncompressed UTF-8 bytes written so far
+   */
+  public long getByteCount() {
+    return writer.byteCount;
+  }
+
+  /**
+   * @return the file extension of the uploaded patch file
+   */
+  public String getFileExtension() {
+    return getFileExtension(compressed);
+  }
+
+  /**
+   * Completes the patch and returns it as repeatable entity, so a failed upload can be resent.
+   *
+   * @return the entity for the upload
+   * @throws IOException if the content could not be flushed
+   */
+  public HttpEntity finish() throws IOException {
+    writer.close();
+    ContentType contentType = compressed ? GZIP_CONTENT_TYPE
+        : ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8);
+    if (file != null) {
+      return new FileEntity(file.toFile(), contentType);
+    }
+    return buffer.toEntity(contentType);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      writer.close();
+    } finally {
+      if (file != null) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Exposes the internal array so the in memory content is not copied again for the upload.
+   */
+  private static final class SpoolBuffer extends ByteArrayOutputStream {
+
+    SpoolBuffer() {
+      super(BUFFER_SIZE);
+    }
+
+    HttpEntity toEntity(ContentType contentType) {
+      return new ByteArrayEntity(buf, 0, count, contentType);
+    }
+  }
+
+  /**
+   * Counts the UTF-8 encoded length of the written characters.
+   */
+  private static final class CountingWriter extends FilterWriter {
+
+    private long byteCount;
+
+    CountingWriter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      out.write(c);
+      byteCount += utf8Length((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      out.write(cbuf, off, len);
+      for (int i = off; i < off + len; i++) {
+        byteCount += utf8Length(cbuf[i]);
+      }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      out.write(str, off, len);
+      for (int i = off; i < off + len; i++) {
+        byteCount += utf8Length(str.charAt(i));
+      }
+    }
+
+    private static int utf8Length(char c) {
+      if (c < 0x80) {
+        return 1;
+      } else if (c < 0x800 || Character.isSurrogate(c)) {
+        // a surrogate pair is encoded with four bytes
+        return 2;
+      }
+      return 3;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package de.gbv.reposis.vzg;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A PICA+ patch entry template, compiled once into literal and placeholder segments. Entries are
+ * written segment by segment into an {@link Appendable}, so no intermediate string is built per
+ * record. Supported placeholders are {@value #PPN_PLACEHOLDER}, {@value #URN_PLACEHOLDER} and
+ * {@value #FULLTEXT_PLACEHOLDER}, the URL of the content resolved by the URN. The first line of a
+ * PICA+ entry starts with two spaces, which {@link java.util.Properties} strips from the start of a
+ * value, so a template set as property has to write them as <code>&#92;u0020&#92;u0020</code>.
+ */
+public final class VZGPicaPatchTemplate {
+
+  public static final String FULLTEXT_PLACEHOLDER = "%FULLTEXT%";
+  public static final String URN_PLACEHOLDER = "%URN%";
+  public static final String PPN_PLACEHOLDER = "%PPN%";
+
+  public static final String DEFAULT_TEMPLATE =
+      "  003@ $0" + PPN_PLACEHOLDER + "\n" + "+ 004U $0" + URN_PLACEHOLDER + "\n" + "+ 017C $u"
+          + FULLTEXT_PLACEHOLDER + "$xD$3Volltext$4LF$534$ADE-Ha91\n";
+
+  private final Segment[] segments;
+
+  private VZGPicaPatchTemplate(Segment[] segments) {
+    this.segments = segments;
+  }
+
+  /**
+   * Compile a template. Unknown placeholders are kept as literal text.
+   *
+   * @param template the template text
+   * @return the compiled template
+   */
+  public static VZGPicaPatchTemplate compile(String template) {
+    List<Segment> segments = new ArrayList<>();
+    int literalStart = 0;
+    int pos = template.indexOf('%');
+    while (pos >= 0) {
+      Placeholder placeholder = Placeholder.at(template, pos);
+      if (placeholder == null) {
+        pos = template.indexOf('%', pos + 1);
+        continue;
+      }
+      if (pos > literalStart) {
+        segments.add(new Literal(template.substring(literalStart, pos)));
+      }
+      segments.add(placeholder);
+      literalStart = pos + placeholder.token.length();
+      pos = template.indexOf('%', literalStart);
+    }
+    if (literalStart < template.length()) {
+      segments.add(new Literal(template.substring(literalStart)));
+    }
+    return new VZGPicaPatchTemplate(segments.toArray(Segment[]::new));
+  }
+
+  /**
+   * Check that the base URL forms valid content URLs, once per run instead of once per entry.
+   *
+   * @param baseURL the base URL of the application, ending with a slash
+   * @return the base URL
+   * @throws IllegalArgumentException if the base URL is not a valid URL
+   */
+  public static String checkBaseURL(String baseURL) {
+    try {
+      new URI(baseURL + "rsc/resolve/urn/").toURL();
+    } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid base URL of the PICA+ patch: " + baseURL, e);
+    }
+    return baseURL;
+  }
+
+  /**
+   * Write an entry.
+   *
+   * @param out the target of the entry
+   * @param baseURL the base URL of the application, ending with a slash
+   * @param ppn the PPN of the document
+   * @param urn the first URN of the document
+   * @throws IOException if the entry could not be written
+   * @throws IllegalArgumentException if the URN is not valid in the path of the content URL
+   */
+  public void write(Appendable out, String baseURL, String ppn, String urn) throws IOException {
+    for (Segment segment : segments) {
+      segment.write(out, baseURL, ppn, urn);
+    }
+  }
+
+  private sealed interface Segment permits Literal, Placeholder {
+
+    void write(Appendable out, String baseURL, String ppn, String urn) throws IOException;
+  }
+
+  private record Literal(String text) implements Segment {
+
+    @Override
+    public void write(Appendable out, String baseURL, String ppn, String urn) throws IOException {
+      out.append(text);
+    }
+  }
+
+  private enum Placeholder implements Segment {
+
+    PPN(PPN_PLACEHOLDER) {
+      @Override
+      public void write(Appendable out, String baseURL, String ppn, String urn)
+          throws IOException {
+        out.append(ppn);
+      }
+    },
+
+    URN(URN_PLACEHOLDER) {
+      @Override
+      public void write(Appendable out, String baseURL, String ppn, String urn)
+          throws IOException {
+        out.append(urn);
+      }
+    },
+
+    FULLTEXT(FULLTEXT_PLACEHOLDER) {
+      @Override
+      public void write(Appendable out, String baseURL, String ppn, String urn)
+          throws IOException {
+        checkURN(urn);
+        out.append(baseURL).append("rsc/resolve/urn/").append(urn).append("/content");
+      }
+    };
+
+    private final String token;
+
+    Placeholder(String token) {
+      this.token = token;
+    }
+
+    /**
+     * Accepts the characters allowed in a URI path, the base URL is checked by
+     * {@link #checkBaseURL(String)}.
+     */
+    private static void checkURN(String urn) {
+      for (int i = 0; i < urn.length(); i++) {
+        char c = urn.charAt(i);
+        boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || "-._~!$&'()*+,;=:@/%".indexOf(c) >= 0;
+        if (!valid) {
+          throw new IllegalArgumentException("Invalid URN for the content URL: " + urn);
+        }
+      }
+    }
+
+    static Placeholder at(String template, int pos) {
+      for (Placeholder placeholder : values()) {
+        if (template.startsWith(placeholder.token, pos)) {
+          return placeholder;
+        }
+      }
+      return null;
+    }
+  }
+}
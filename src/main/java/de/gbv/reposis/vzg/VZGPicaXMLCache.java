@@ -0,0 +1,293 @@
+package de.gbv.reposis.vzg;
+
+import de.gbv.reposis.vzg.service.ResolveCache;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fetches the PICA-XML records of PPNs from the K10plus unAPI and keeps them in memory and in a
+ * directory, both bounded in size and with a time to live. Editors often enter the same PPN more
+ * than once in the PPN import, so the remote request is only sent for the first attempt. Unknown
+ * PPNs are only cached in memory, for a short time.
+ */
+public class VZGPicaXMLCache implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final Pattern PPN_PATTERN = Pattern.compile("[0-9]{1,15}[0-9Xx]");
+
+  private static final Duration NEGATIVE_TTL = Duration.ofMinutes(1);
+
+  private static final String FILE_SUFFIX = ".xml";
+
+  private final String baseURL;
+
+  private final Duration ttl;
+
+  private final Path directory;
+
+  private final int maxFiles;
+
+  private final ResolveCache<String, byte[]> memoryCache;
+
+  private final CloseableHttpClient httpClient;
+
+  private final LongAdder diskHits = new LongAdder();
+
+  private final LongAdder fetches = new LongAdder();
+
+  private final LongAdder fetchNanos = new LongAdder();
+
+  // the number of files in the directory, -1 until it was listed, guarded by this
+  private int fileCount = -1;
+
+  /**
+   * @param baseURL the base URL of the unAPI, e.g. {@code https://unapi.k10plus.de/}
+   * @param maxSize the maximum number of records in memory, 0 disables the memory cache
+   * @param ttl the time to live of cached records
+   * @param directory the directory of the cached records or null to disable the disk cache
+   * @param maxFiles the maximum number of records in the directory
+   * @param timeout timeout for connecting to and waiting on data of the unAPI
+   */
+  public VZGPicaXMLCache(String baseURL, int maxSize, Duration ttl, Path directory, int maxFiles,
+      Duration timeout) {
+    this.baseURL = baseURL;
+    this.ttl = ttl;
+    this.directory = directory;
+    this.maxFiles = maxFiles;
+    this.memoryCache = new ResolveCache<>(maxSize, ttl, NEGATIVE_TTL);
+    this.httpClient = HttpClients.custom()
+        .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(timeout))
+                .setSocketTimeout(Timeout.of(timeout))
+                .build())
+            .build())
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setResponseTimeout(Timeout.of(timeout))
+            .build())
+        .build();
+  }
+
+  /**
+   * @param ppn the string to check
+   * @return true if the string has the syntax of a PPN
+   */
+  public static boolean isValidPPN(String ppn) {
+    return ppn != null && PPN_PATTERN.matcher(ppn).matches();
+  }
+
+  /**
+   * @param ppn the PPN
+   * @return the URL of the PICA-XML record of the PPN
+   */
+  public String getURL(String ppn) {
+    return baseURL + "?id=gvk:ppn:" + ppn + "&format=picaxml";
+  }
+
+  /**
+   * Get the PICA-XML record of a PPN from memory, the directory or the unAPI.
+   *
+   * @param ppn a valid PPN
+   * @return the record or null if the unAPI does not know the PPN
+   * @throws IOException if the unAPI could not be reached or answered with an error
+   */
+  public byte[] get(String ppn) throws IOException {
+    if (!isValidPPN(ppn)) {
+      throw new IllegalArgumentException("Invalid PPN: " + ppn);
+    }
+    try {
+      return memoryCache.get(ppn, this::load);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private byte[] load(String ppn) {
+    try {
+      byte[] record = readFile(ppn);
+      if (record != null) {
+        diskHits.increment();
+        LOGGER.debug("Read PICA-XML of PPN {} from {}", ppn, directory);
+        return record;
+      }
+      record = fetch(ppn);
+      if (record != null) {
+        writeFile(ppn, record);
+      }
+      return record;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private byte[] fetch(String ppn) throws IOException {
+    long start = System.nanoTime();
+    byte[] record = httpClient.execute(new HttpGet(getURL(ppn)), response -> {
+      if (response.getCode() == HttpStatus.SC_NOT_FOUND) {
+        return null;
+      }
+      if (response.getCode() != HttpStatus.SC_OK) {
+        throw new IOException(
+            "unAPI answered the request of PPN " + ppn + " with HTTP status " + response.getCode());
+      }
+      byte[] body = EntityUtils.toByteArray(response.getEntity());
+      return body == null || body.length == 0 ? null : body;
+    });
+    long nanos = System.nanoTime() - start;
+    fetches.increment();
+    fetchNanos.add(nanos);
+    LOGGER.info("Fetched PICA-XML of PPN {} in {} ms ({})", ppn,
+        TimeUnit.NANOSECONDS.toMillis(nanos), getStatistics());
+    return record;
+  }
+
+  private byte[] readFile(String ppn) throws IOException {
+    if (directory == null) {
+      return null;
+    }
+    Path file = directory.resolve(ppn + FILE_SUFFIX);
+    try {
+      if (isExpired(Files.getLastModifiedTime(file))) {
+        if (Files.deleteIfExists(file)) {
+          addFiles(-1);
+        }
+        return null;
+      }
+      return Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private void writeFile(String ppn, byte[] record) throws IOException {
+    if (directory == null) {
+      return;
+    }
+    Files.createDirectories(directory);
+    Path file = directory.resolve(ppn + FILE_SUFFIX);
+    boolean replaced = Files.exists(file);
+    Path tempFile = Files.createTempFile(directory, ppn, ".tmp");
+    try {
+      Files.write(tempFile, record);
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+    addFiles(replaced ? 0 : 1);
+  }
+
+  /**
+   * Count added or deleted files and trim the directory once it holds more than the maximum
+   * number of files. The directory is only listed then and once at the start, so writes do not
+   * depend on the number of cached files.
+   */
+  private synchronized void addFiles(int count) throws IOException {
+    if (fileCount < 0 || (fileCount = Math.max(0, fileCount + count)) > maxFiles) {
+      fileCount = removeOldestFiles();
+    }
+  }
+
+  /**
+   * Delete the expired files and the oldest ones above the maximum number of files, leaving a
+   * tenth of the maximum free, so the directory is not listed again on the next write.
+   *
+   * @return the number of remaining files
+   */
+  private int removeOldestFiles() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+      stream.forEach(files::add);
+    }
+    List<CachedFile> cachedFiles = new ArrayList<>(files.size());
+    for (Path file : files) {
+      try {
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        if (isExpired(lastModified)) {
+          Files.deleteIfExists(file);
+        } else {
+          cachedFiles.add(new CachedFile(file, lastModified));
+        }
+      } catch (NoSuchFileException e) {
+        // removed by a concurrent request
+      }
+    }
+    if (cachedFiles.size() <= maxFiles) {
+      return cachedFiles.size();
+    }
+    int keep = maxFiles - maxFiles / 10;
+    cachedFiles.sort(Comparator.comparing(CachedFile::lastModified));
+    for (CachedFile cachedFile : cachedFiles.subList(0, cachedFiles.size() - keep)) {
+      Files.deleteIfExists(cachedFile.file());
+    }
+    return keep;
+  }
+
+  private boolean isExpired(FileTime lastModified) {
+    return lastModified.toInstant().plus(ttl).isBefore(Instant.now());
+  }
+
+  /**
+   * @return the number of records served from memory
+   */
+  public long getMemoryHits() {
+    return memoryCache.getHitCount();
+  }
+
+  /**
+   * @return the number of records served from the directory
+   */
+  public long getDiskHits() {
+    return diskHits.sum();
+  }
+
+  /**
+   * @return the number of requests sent to the unAPI
+   */
+  public long getFetches() {
+    return fetches.sum();
+  }
+
+  private String getStatistics() {
+    long fetchCount = fetches.sum();
+    return "memory hits: " + getMemoryHits() + ", disk hits: " + getDiskHits() + ", fetches: "
+        + fetchCount + ", mean fetch time: "
+        + (fetchCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(fetchNanos.sum() / fetchCount))
+        + " ms";
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+
+  private record CachedFile(Path file, FileTime lastModified) {
+  }
+}
@@ -1,22 +1,30 @@
 package de.gbv.reposis.vzg;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Predicate;
-import org.apache.hc.client5.http.classic.methods.HttpPut;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.io.entity.StringEntity;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
@@ -24,15 +32,17 @@ import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
-import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
-import org.jdom2.Element;
 import org.mycore.access.MCRAccessException;
 import org.mycore.common.MCRException;
 import org.mycore.common.MCRSystemUserInformation;
+import org.mycore.common.MCRTransactionManager;
 import org.mycore.common.config.annotation.MCRProperty;
 import org.mycore.datamodel.classifications2.MCRCategoryID;
+import org.mycore.datamodel.common.MCRXMLMetadataManager;
 import org.mycore.datamodel.metadata.MCRMetaEnrichedLinkID;
 import org.mycore.datamodel.metadata.MCRMetadataManager;
 import org.mycore.datamodel.metadata.MCRObject;
@@ -49,21 +59,45 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
-  public static final String FULLTEXT_PLACEHOLDER = "%FULLTEXT%";
-  public static final String URN_PLACEHOLDER = "%URN%";
-  public static final String PPN_PLACEHOLDER = "%PPN%";
-
-  private static final String TEMPLATE =
-      "  003@ $0" + PPN_PLACEHOLDER + "\n" + "+ 004U $0" + URN_PLACEHOLDER + "\n" + "+ 017C $u"
-          + FULLTEXT_PLACEHOLDER + "$xD$3Volltext$4LF$534$ADE-Ha91\n";
+  public static final String FULLTEXT_PLACEHOLDER = VZGPicaPatchTemplate.FULLTEXT_PLACEHOLDER;
+  public static final String URN_PLACEHOLDER = VZGPicaPatchTemplate.URN_PLACEHOLDER;
+  public static final String PPN_PLACEHOLDER = VZGPicaPatchTemplate.PPN_PLACEHOLDER;
 
 
   public static final String PICA_PATCH_PUBLISHED_SERVFLAG_TYPE = "picaPatchPublished";
 
+  public static final String PPN_SOLR_FIELD = "vzg.ppn";
+  public static final String FIRST_URN_SOLR_FIELD = "vzg.urn.first";
+  public static final String DERIVATE_CATEGORY_SOLR_FIELD = "vzg.derivate.maindoc.category";
+
+  private static final int DEFAULT_PAGE_SIZE = 1000;
+
+  private static final int DEFAULT_COMMIT_BATCH_SIZE = 100;
+
+  // bounds the documents kept until the upload of a patch file
+  private static final int DEFAULT_MAX_RECORDS_PER_FILE = 10_000;
+
 
   private String shareToken;
   private String nextcloudURL;
   private Set<MCRCategoryID> publishableDerivateCategories;
+  private int pageSize = DEFAULT_PAGE_SIZE;
+  private int parallelism = 1;
+  private int commitBatchSize = DEFAULT_COMMIT_BATCH_SIZE;
+  private Path spoolDirectory;
+  private boolean spoolInMemory;
+  private boolean compress;
+  private Duration connectTimeout = Duration.ofSeconds(30);
+  private Duration responseTimeout = Duration.ofMinutes(5);
+  private int maxRetries = 5;
+  private Duration retryBackoff = Duration.ofSeconds(2);
+  private boolean solrFastPath;
+  private VZGPicaPatchTemplate template =
+      VZGPicaPatchTemplate.compile(VZGPicaPatchTemplate.DEFAULT_TEMPLATE);
+  private int maxRecordsPerFile = DEFAULT_MAX_RECORDS_PER_FILE;
+  private long maxBytesPerFile;
+  private VZGNextcloudClient nextcloudClient;
+  private long lastFileTimestamp;
 
   @Override
   public void runJob() {
@@ -72,95 +106,265 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
        * find all published documents with at least one Derivate and an urn and without VZG PICA+
        * patch flag
        */
-      List<MCRObjectID> publishableDocuments = findPublishableDocuments();
-      List<MCRObjectID> toBePublishedDocuments = new ArrayList<>();
-      StringBuilder picaPatchBuilder = new StringBuilder();
-      for (MCRObjectID docId : publishableDocuments) {
-        MCRObject mcrObject = MCRMetadataManager.retrieveMCRObject(docId);
-        if (this.checkIfPublishable(mcrObject)) {
-          String picaPatchEntry = convertToPicaPatchEntry(mcrObject);
-          toBePublishedDocuments.add(docId);
-          picaPatchBuilder.append(picaPatchEntry);
-        } else {
-          LOGGER.warn(
-              "[Safeguard] Document {} is not publishable. Skipping PICA+ patch publishing.",
-              docId);
-        }
-      }
-
-      boolean success = publishPatchFile(picaPatchBuilder.toString());
-
-      if (success) {
-        // set servflag for published documents
-        for (MCRObjectID docId : toBePublishedDocuments) {
-          LOGGER.info("Set {} servflag to true for document {}.",
-              PICA_PATCH_PUBLISHED_SERVFLAG_TYPE, docId);
-          MCRObject mcrObject = MCRMetadataManager.retrieveMCRObject(docId);
-          mcrObject.getService().addFlag(PICA_PATCH_PUBLISHED_SERVFLAG_TYPE, "true");
-          try {
-            MCRMetadataManager.update(mcrObject);
-          } catch (MCRAccessException e) {
-            throw new MCRException(e);
+      PicaPatchChunker chunker = new PicaPatchChunker();
+      try (chunker) {
+        forEachConvertedDocument(candidate -> {
+          if (candidate.isPublishable()) {
+            chunker.add(candidate);
+          } else {
+            LOGGER.warn(
+                "[Safeguard] Document {} is not publishable. Skipping PICA+ patch publishing.",
+                candidate.id());
           }
-        }
+        });
+        chunker.publish();
+      } catch (PublishFailedException e) {
+        LOGGER.error("{} Remaining documents are published in the next run.", e.getMessage());
+      } catch (IOException | UncheckedIOException e) {
+        throw new MCRException(e);
+      } finally {
+        closeNextcloudClient();
       }
 
+      if (chunker.getChunkCount() == 0) {
+        LOGGER.info("No PICA+ patch content to publish.");
+      }
     }, MCRSystemUserInformation.JANITOR).run();
   }
 
   /**
-   * Publish the PICA+ patch file to the VZG Nextcloud
+   * Load and convert all publishable documents. With a parallelism greater than one, objects are
+   * loaded and converted by a bounded pool of virtual threads, each running as the JANITOR user.
+   * Only a small window of documents is in flight at a time and the results are passed to the
+   * consumer in the order of the Solr scan, so the patch file content stays deterministic.
    *
-   * @param picaPatchFile the PICA+ patch file content
-   * @return true if successful, false otherwise
+   * @param consumer receives the conversion result of every publishable document
    */
-  protected boolean publishPatchFile(String picaPatchFile) {
-    if (picaPatchFile == null || picaPatchFile.isBlank()) {
-      LOGGER.info("No PICA+ patch content to publish.");
-      return true;
+  protected void forEachConvertedDocument(Consumer<PicaPatchCandidate> consumer) {
+    if (this.parallelism <= 1) {
+      forEachPublishableSolrDocument(result -> {
+        PicaPatchCandidate candidate = convertFromSolr(result);
+        consumer.accept(candidate != null ? candidate : loadAndConvert(getObjectID(result)));
+      });
+      return;
     }
 
-    String fileName = "pica_patch_" + System.currentTimeMillis() + ".pp";
+    try (ExecutorService executor = Executors.newFixedThreadPool(this.parallelism,
+        Thread.ofVirtual().name("vzg-pica-patch-", 0).factory())) {
+      Deque<CompletableFuture<PicaPatchCandidate>> pending = new ArrayDeque<>();
+      int window = this.parallelism * 2;
+      forEachPublishableSolrDocument(result -> {
+        PicaPatchCandidate candidate = convertFromSolr(result);
+        pending.add(candidate != null ? CompletableFuture.completedFuture(candidate)
+            : submitConversion(executor, getObjectID(result)));
+        while (pending.size() >= window) {
+          consumer.accept(pending.poll().join());
+        }
+      });
+      while (!pending.isEmpty()) {
+        consumer.accept(pending.poll().join());
+      }
+    }
+  }
 
-    // Nextcloud Public WebDAV Upload URL
-    // Format: https://nextcloud.example.com/public.php/dav/files/{share_token}/{filename}
-    String baseUrl = this.nextcloudURL;
-    if (baseUrl.endsWith("/")) {
-      baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+  /**
+   * Convert a document straight from its stored Solr fields, if {@code SolrFastPath} is enabled.
+   * The PPN, the first URN and the categories of the derivates with a main document are indexed
+   * by {@code vzg-solr.xsl}.
+   *
+   * @param result the Solr document
+   * @return the conversion result, or null if the object has to be loaded for the safeguard check
+   *     because the fields are missing or do not show a publishable derivate
+   */
+  protected PicaPatchCandidate convertFromSolr(SolrDocument result) {
+    if (!this.solrFastPath) {
+      return null;
+    }
+    Object ppn = result.getFirstValue(PPN_SOLR_FIELD);
+    Object urn = result.getFirstValue(FIRST_URN_SOLR_FIELD);
+    Collection<Object> derivateCategories = result.getFieldValues(DERIVATE_CATEGORY_SOLR_FIELD);
+    if (ppn == null || urn == null || derivateCategories == null) {
+      return null;
+    }
+    Set<MCRCategoryID> categories = this.getPublishableDerivateCategories();
+    boolean hasDerivate = derivateCategories.stream().map(Object::toString)
+        .map(MCRCategoryID::ofString).anyMatch(categories::contains);
+    if (!hasDerivate) {
+      return null;
     }
-    String uploadUrl = baseUrl + "/public.php/dav/files/" + this.shareToken + "/" + fileName;
+    return new PicaPatchCandidate(getObjectID(result), ppn.toString(), urn.toString(), null, -1);
+  }
 
-    try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-      HttpPut httpPut = new HttpPut(uploadUrl);
+  private static MCRObjectID getObjectID(SolrDocument result) {
+    return MCRObjectID.getInstance(result.getFieldValue("id").toString());
+  }
 
-      /*
-      String auth = "anonymous:";
-      String encodedAuth = java.util.Base64.getEncoder()
-          .encodeToString(auth.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-      httpPut.setHeader("Authorization", "Basic " + encodedAuth);
-      */
-
-      httpPut.setEntity(new StringEntity(picaPatchFile,
-          ContentType.TEXT_PLAIN.withCharset(java.nio.charset.StandardCharsets.UTF_8)));
-
-      return httpClient.execute(httpPut, response -> {
-        int statusCode = response.getCode();
-
-        // WebDAV PUT gibt 201 Created oder 204 No Content zurück
-        if (statusCode == 201 || statusCode == 204) {
-          LOGGER.info("Successfully published PICA+ patch file to Nextcloud: {}", fileName);
-          return true;
-        } else {
-          LOGGER.error("Failed to publish PICA+ patch file. HTTP Status: {}", statusCode);
-          return false;
+  private CompletableFuture<PicaPatchCandidate> submitConversion(Executor executor,
+      MCRObjectID docId) {
+    CompletableFuture<PicaPatchCandidate> future = new CompletableFuture<>();
+    executor.execute(() -> {
+      try {
+        new MCRFixedUserRunnable(() -> future.complete(loadAndConvert(docId)),
+            MCRSystemUserInformation.JANITOR).run();
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Load a document and extract the values of its PICA+ patch entry, if it passes the safeguard
+   * check.
+   *
+   * @param docId the id of the document
+   * @return the conversion result, without values if the document is not publishable
+   */
+  protected PicaPatchCandidate loadAndConvert(MCRObjectID docId) {
+    long lastModified = getLastModified(docId);
+    MCRObject mcrObject = MCRMetadataManager.retrieveMCRObject(docId);
+    VZGModsIdentifiers identifiers = VZGModsIdentifiers.of(mcrObject);
+    if (!this.checkIfPublishable(mcrObject, identifiers)) {
+      return new PicaPatchCandidate(docId, null, null, null, lastModified);
+    }
+    return new PicaPatchCandidate(docId, identifiers.ppn(), identifiers.getFirstUrn().orElseThrow(),
+        mcrObject, lastModified);
+  }
+
+  /**
+   * Set the {@value #PICA_PATCH_PUBLISHED_SERVFLAG_TYPE} servflag on all published documents.
+   * The objects loaded for the conversion are reused unless they were modified in the meantime,
+   * so an object is not loaded and parsed twice; a chunk holds at most {@code MaxRecordsPerFile}
+   * objects. The updates are committed in batches of {@code CommitBatchSize} objects per
+   * transaction.
+   *
+   * @param publishedDocuments the documents contained in the published patch file
+   */
+  protected void commitPublishedFlags(List<PicaPatchCandidate> publishedDocuments) {
+    int size = publishedDocuments.size();
+    for (int start = 0; start < size; start += this.commitBatchSize) {
+      List<PicaPatchCandidate> batch = publishedDocuments.subList(start,
+          Math.min(size, start + this.commitBatchSize));
+      long batchStart = System.nanoTime();
+      for (PicaPatchCandidate candidate : batch) {
+        LOGGER.debug("Set {} servflag to true for document {}.",
+            PICA_PATCH_PUBLISHED_SERVFLAG_TYPE, candidate.id());
+        MCRObject mcrObject = getCurrentObject(candidate);
+        mcrObject.getService().addFlag(PICA_PATCH_PUBLISHED_SERVFLAG_TYPE, "true");
+        try {
+          MCRMetadataManager.update(mcrObject);
+        } catch (MCRAccessException e) {
+          throw new MCRException(e);
         }
-      });
+      }
+      if (MCRTransactionManager.hasActiveTransactions()) {
+        MCRTransactionManager.commitTransactions();
+        MCRTransactionManager.beginTransactions();
+      }
+      logThroughput("Set " + PICA_PATCH_PUBLISHED_SERVFLAG_TYPE + " servflag for", batch.size(),
+          batchStart);
+    }
+  }
+
+  /**
+   * Returns the object loaded during the conversion, or a freshly loaded one if the document was
+   * converted from Solr or the stored object was modified since, so the servflag update does not
+   * overwrite concurrent changes.
+   */
+  private static MCRObject getCurrentObject(PicaPatchCandidate candidate) {
+    if (candidate.object() == null) {
+      return MCRMetadataManager.retrieveMCRObject(candidate.id());
+    }
+    if (candidate.lastModified() != getLastModified(candidate.id())) {
+      LOGGER.warn("Document {} was modified after its PICA+ patch entry was written.",
+          candidate.id());
+      return MCRMetadataManager.retrieveMCRObject(candidate.id());
+    }
+    return candidate.object();
+  }
+
+  private static long getLastModified(MCRObjectID docId) {
+    try {
+      return MCRXMLMetadataManager.obtainInstance().getLastModified(docId);
+    } catch (IOException e) {
+      throw new MCRException(e);
+    }
+  }
+
+  private static void logThroughput(String action, int count, long startNanos) {
+    long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    LOGGER.info("{} {} documents in {} ms ({} documents/s).", action, count, millis,
+        count * 1000L / millis);
+  }
+
+  /**
+   * Create the spool for the PICA+ patch file content, a temporary file unless
+   * {@code SpoolInMemory} is set.
+   *
+   * @return the new spool
+   * @throws IOException if the spool could not be created
+   */
+  protected VZGPicaPatchSpool createSpool() throws IOException {
+    if (this.spoolInMemory) {
+      return VZGPicaPatchSpool.inMemory(this.compress);
+    }
+    Path directory = this.spoolDirectory != null ? this.spoolDirectory
+        : Path.of(System.getProperty("java.io.tmpdir"));
+    Files.createDirectories(directory);
+    return VZGPicaPatchSpool.toFile(directory, this.compress);
+  }
+
+  /**
+   * Publish the PICA+ patch file to the VZG Nextcloud
+   *
+   * @param picaPatchSpool the spooled PICA+ patch file content
+   * @return true if successful, false otherwise
+   */
+  protected boolean publishPatchFile(VZGPicaPatchSpool picaPatchSpool) {
+    String fileName = "pica_patch_" + nextFileTimestamp() + picaPatchSpool.getFileExtension();
+    try {
+      return getNextcloudClient().upload(fileName, picaPatchSpool.finish());
     } catch (IOException e) {
       LOGGER.error("Error publishing PICA+ patch file to Nextcloud", e);
       return false;
     }
   }
 
+  /**
+   * Returns the current time in milliseconds for the file name, strictly increasing so chunks
+   * uploaded within the same millisecond do not overwrite each other.
+   */
+  private synchronized long nextFileTimestamp() {
+    this.lastFileTimestamp = Math.max(System.currentTimeMillis(), this.lastFileTimestamp + 1);
+    return this.lastFileTimestamp;
+  }
+
+  /**
+   * Returns the Nextcloud client of this job. It is created on first use and kept until the end
+   * of the run, so the connection pool is reused by the uploads of all chunks.
+   *
+   * @return the Nextcloud client
+   */
+  protected synchronized VZGNextcloudClient getNextcloudClient() {
+    if (this.nextcloudClient == null) {
+      this.nextcloudClient = new VZGNextcloudClient(this.nextcloudURL, this.shareToken,
+          this.connectTimeout, this.responseTimeout, this.maxRetries, this.retryBackoff);
+    }
+    return this.nextcloudClient;
+  }
+
+  private synchronized void closeNextcloudClient() {
+    if (this.nextcloudClient == null) {
+      return;
+    }
+    try {
+      this.nextcloudClient.close();
+    } catch (IOException e) {
+      LOGGER.warn("Error closing the Nextcloud client", e);
+    }
+    this.nextcloudClient = null;
+  }
+
   /**
    * Check if a document is publishable to the Catalogue. It's a save guard method to double-check
    * the publishable ids retrieved by the Solr query.
@@ -169,15 +373,25 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
    * @return true if publishable, false otherwise
    */
   protected boolean checkIfPublishable(MCRObject obj) {
-    MCRMODSWrapper modsObject = new MCRMODSWrapper(obj);
+    return checkIfPublishable(obj, VZGModsIdentifiers.of(obj));
+  }
 
+  /**
+   * Check if a document is publishable to the Catalogue, see
+   * {@link #checkIfPublishable(MCRObject)}.
+   *
+   * @param obj the mycore object to check
+   * @param identifiers the identifiers extracted from the object
+   * @return true if publishable, false otherwise
+   */
+  protected boolean checkIfPublishable(MCRObject obj, VZGModsIdentifiers identifiers) {
     // check if it has urn identifier
-    if (!this.hasUrnIdentifier(modsObject)) {
+    if (identifiers.urns().isEmpty()) {
       LOGGER.warn("[Safeguard] Document {} has no URN identifier.", obj.getId());
       return false;
     }
 
-    if (!this.hasPPNIdentifier(modsObject)) {
+    if (identifiers.getPPN().isEmpty()) {
       LOGGER.warn("[Safeguard] Document {} has no PPN identifier.", obj.getId());
       return false;
     }
@@ -233,14 +447,11 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
    * @return list of URN identifiers
    */
   protected List<String> getURNS(MCRMODSWrapper modsObj) {
-    return modsObj.getElements("mods:identifier[@type='urn']").stream().map(Element::getTextTrim)
-        .filter(Predicate.not(String::isBlank)).toList();
+    return VZGModsIdentifiers.of(modsObj.getMODS()).urns();
   }
 
   protected Optional<String> getPPN(MCRMODSWrapper modsObj) {
-    return Optional.ofNullable(modsObj.getElement("mods:identifier[@type='uri']"))
-        .map(Element::getTextNormalize).filter(uri -> uri.contains("gvk:ppn:"))
-        .map(uri -> uri.substring(uri.indexOf("gvk:ppn:") + "gbk:ppn:".length()));
+    return VZGModsIdentifiers.of(modsObj.getMODS()).getPPN();
   }
 
   /**
@@ -250,18 +461,20 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
    * @return the URL of the content derivate derivate
    */
   protected URL getPDFURL(MCRMODSWrapper modsWrapper) {
-    try {
-      List<String> urns = getURNS(modsWrapper);
-      Optional<String> urn = urns.stream().findFirst();
-      if (urn.isPresent()) {
-        return new URI(
-            MCRFrontendUtil.getBaseURL() + "rsc/resolve/urn/" + urn.get() + "/content").toURL();
-      } else {
-        String objId = modsWrapper.getMCRObject().getId().toString();
-        return new URI(
-            MCRFrontendUtil.getBaseURL() + "rsc/resolve/id/" + objId + "/content").toURL();
-      }
+    List<String> urns = getURNS(modsWrapper);
+    Optional<String> urn = urns.stream().findFirst();
+    if (urn.isPresent()) {
+      return getPDFURL("urn", urn.get());
+    } else {
+      return getPDFURL("id", modsWrapper.getMCRObject().getId().toString());
+    }
+  }
 
+  private static URL getPDFURL(String type, String identifier) {
+    try {
+      return new URI(
+          MCRFrontendUtil.getBaseURL() + "rsc/resolve/" + type + "/" + identifier + "/content")
+          .toURL();
     } catch (MalformedURLException | URISyntaxException e) {
       throw new MCRException(e);
     }
@@ -285,32 +498,66 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
    * @return list of publishable document IDs
    */
   protected List<MCRObjectID> findPublishableDocuments() {
-    SolrClient client = MCRSolrCoreManager.getMainSolrClient();
+    ArrayList<MCRObjectID> idList = new ArrayList<>();
+    forEachPublishableDocument(idList::add);
+    return idList;
+  }
 
-    SolrQuery query = getPublishableDocumentsQuery();
-    QueryRequest queryRequest = new QueryRequest(query);
+  /**
+   * Stream all documents which are publishable to the Catalogue. The Solr result is paged with a
+   * cursor sorted on {@code id}, so only one page of IDs is held in memory at a time, regardless
+   * of the number of unpublished documents.
+   *
+   * @param consumer receives the publishable document IDs in index order
+   * @return the number of document IDs passed to the consumer
+   */
+  protected long forEachPublishableDocument(Consumer<MCRObjectID> consumer) {
+    return forEachPublishableSolrDocument(result -> consumer.accept(getObjectID(result)));
+  }
 
-    MCRSolrAuthenticationManager.obtainInstance()
-        .applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
+  /**
+   * Stream the Solr documents of all documents which are publishable to the Catalogue, see
+   * {@link #forEachPublishableDocument(Consumer)}.
+   *
+   * @param consumer receives the Solr documents in index order
+   * @return the number of documents passed to the consumer
+   */
+  protected long forEachPublishableSolrDocument(Consumer<SolrDocument> consumer) {
+    SolrClient client = MCRSolrCoreManager.getMainSolrClient();
 
-    ArrayList<MCRObjectID> idList;
-    try {
-      QueryResponse response = queryRequest.process(client);
-      SolrDocumentList results = response.getResults();
-      idList = new ArrayList<>(results.size());
+    String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+    long count = 0;
+    while (true) {
+      SolrQuery query = getPublishableDocumentsQuery();
+      query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+      QueryRequest queryRequest = new QueryRequest(query);
+
+      MCRSolrAuthenticationManager.obtainInstance()
+          .applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
+
+      QueryResponse response;
+      try {
+        response = queryRequest.process(client);
+      } catch (SolrServerException | IOException e) {
+        throw new MCRException(e);
+      }
 
-      LOGGER.info("Found {} documents to publish PICA+ patches for VZG.", results.size());
+      if (CursorMarkParams.CURSOR_MARK_START.equals(cursorMark)) {
+        LOGGER.info("Found {} documents to publish PICA+ patches for VZG.",
+            response.getResults().getNumFound());
+      }
 
-      results.forEach(result -> {
-        String idStr = result.getFieldValue("id").toString();
-        MCRObjectID objId = MCRObjectID.getInstance(idStr);
-        idList.add(objId);
-      });
-    } catch (SolrServerException | IOException e) {
-      throw new MCRException(e);
-    }
+      for (SolrDocument result : response.getResults()) {
+        consumer.accept(result);
+        count++;
+      }
 
-    return idList;
+      String nextCursorMark = response.getNextCursorMark();
+      if (nextCursorMark == null || nextCursorMark.equals(cursorMark)) {
+        return count;
+      }
+      cursorMark = nextCursorMark;
+    }
   }
 
   /**
@@ -324,11 +571,15 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
     params.add(CommonParams.FQ, "mods.identifier.type.urn:*");
     params.add(CommonParams.FQ, "mods.identifier.type.uri:*");
     params.add(CommonParams.Q, "objectType:mods");
-    params.add(CommonParams.FL, "id");
+    params.add(CommonParams.FL, this.solrFastPath
+        ? String.join(",", "id", PPN_SOLR_FIELD, FIRST_URN_SOLR_FIELD, DERIVATE_CATEGORY_SOLR_FIELD)
+        : "id");
     params.add(CommonParams.FQ, "*:* AND NOT(servflag.type." + PICA_PATCH_PUBLISHED_SERVFLAG_TYPE
         + ":true)");
     query.add(params);
-    query.setRows(Integer.MAX_VALUE);
+    // the cursor needs a stable sort on the unique key
+    query.setSort("id", SolrQuery.ORDER.asc);
+    query.setRows(this.pageSize);
     return query;
   }
 
@@ -339,16 +590,37 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
    * @return the PICA+ patch entry as string
    */
   public String convertToPicaPatchEntry(MCRObject obj) {
-    MCRMODSWrapper modsWrapper = new MCRMODSWrapper(obj);
+    VZGModsIdentifiers identifiers = VZGModsIdentifiers.of(obj);
 
-    URL pdfurl = this.getPDFURL(modsWrapper);
-    String firstUrn = this.getURNS(modsWrapper).stream().findFirst().orElseThrow();
-    String ppn = this.getPPN(modsWrapper).orElseThrow();
+    String firstUrn = identifiers.getFirstUrn().orElseThrow();
+    String ppn = identifiers.getPPN().orElseThrow();
+
+    StringBuilder picaPatchEntry = new StringBuilder();
+    try {
+      writePicaPatchEntry(picaPatchEntry,
+          VZGPicaPatchTemplate.checkBaseURL(MCRFrontendUtil.getBaseURL()), ppn, firstUrn);
+    } catch (IOException e) {
+      throw new MCRException(e);
+    }
+    return picaPatchEntry.toString();
+  }
 
-    return TEMPLATE.replace(FULLTEXT_PLACEHOLDER, pdfurl.toString())
-        .replace(URN_PLACEHOLDER, firstUrn).replace(PPN_PLACEHOLDER, ppn);
+  /**
+   * Write a PICA+ patch entry with the configured template
+   *
+   * @param out the target of the entry
+   * @param baseURL the base URL of the application
+   * @param ppn the PPN of the document
+   * @param firstUrn the first URN of the document
+   * @throws IOException if the entry could not be written
+   */
+  public void writePicaPatchEntry(Appendable out, String baseURL, String ppn, String firstUrn)
+      throws IOException {
+    this.template.write(out, baseURL, ppn, firstUrn);
   }
 
+
+
   @Override
   public String getDescription() {
     return "Publishes PICA+ patches to the VZG";
@@ -371,6 +643,172 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
   }
 
 
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Number of document IDs fetched from Solr per cursor page.
+   */
+  @MCRProperty(name = "PageSize", required = false)
+  public void setPageSize(String pageSize) {
+    this.pageSize = Integer.parseInt(pageSize.trim());
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Number of worker threads loading and converting objects, 1 converts in the job thread.
+   */
+  @MCRProperty(name = "Parallelism", required = false)
+  public void setParallelism(String parallelism) {
+    this.parallelism = Integer.parseInt(parallelism.trim());
+  }
+
+  public int getCommitBatchSize() {
+    return commitBatchSize;
+  }
+
+  /**
+   * Number of servflag updates committed per transaction after a successful upload.
+   */
+  @MCRProperty(name = "CommitBatchSize", required = false)
+  public void setCommitBatchSize(String commitBatchSize) {
+    this.commitBatchSize = Integer.parseInt(commitBatchSize.trim());
+  }
+
+  public Path getSpoolDirectory() {
+    return spoolDirectory;
+  }
+
+  /**
+   * Directory for the temporary PICA+ patch files, defaults to {@code java.io.tmpdir}.
+   */
+  @MCRProperty(name = "SpoolDirectory", required = false)
+  public void setSpoolDirectory(String spoolDirectory) {
+    this.spoolDirectory = Path.of(spoolDirectory.trim());
+  }
+
+  public boolean isSpoolInMemory() {
+    return spoolInMemory;
+  }
+
+  /**
+   * Keep the PICA+ patch in memory instead of a temporary file.
+   */
+  @MCRProperty(name = "SpoolInMemory", required = false)
+  public void setSpoolInMemory(String spoolInMemory) {
+    this.spoolInMemory = Boolean.parseBoolean(spoolInMemory.trim());
+  }
+
+  public boolean isCompress() {
+    return compress;
+  }
+
+  /**
+   * Upload the PICA+ patch gzip compressed as {@code .pp.gz} file.
+   */
+  @MCRProperty(name = "Compress", required = false)
+  public void setCompress(String compress) {
+    this.compress = Boolean.parseBoolean(compress.trim());
+  }
+
+  public boolean isSolrFastPath() {
+    return solrFastPath;
+  }
+
+  /**
+   * Build the PICA+ patch entries from the stored Solr fields instead of loading every object.
+   */
+  @MCRProperty(name = "SolrFastPath", required = false)
+  public void setSolrFastPath(String solrFastPath) {
+    this.solrFastPath = Boolean.parseBoolean(solrFastPath.trim());
+  }
+
+  /**
+   * Template of a PICA+ patch entry, see {@link VZGPicaPatchTemplate} for the placeholders and the
+   * leading spaces of the first line.
+   */
+  @MCRProperty(name = "Template", required = false)
+  public void setTemplate(String template) {
+    this.template = VZGPicaPatchTemplate.compile(template);
+  }
+
+  public int getMaxRecordsPerFile() {
+    return maxRecordsPerFile;
+  }
+
+  /**
+   * Maximum number of records per PICA+ patch file, 0 for no limit. The documents of a file are
+   * kept until it is uploaded, so without a limit the heap grows with the size of the run.
+   */
+  @MCRProperty(name = "MaxRecordsPerFile", required = false)
+  public void setMaxRecordsPerFile(String maxRecordsPerFile) {
+    this.maxRecordsPerFile = Integer.parseInt(maxRecordsPerFile.trim());
+  }
+
+  public long getMaxBytesPerFile() {
+    return maxBytesPerFile;
+  }
+
+  /**
+   * Maximum uncompressed size in bytes per PICA+ patch file, 0 for no limit.
+   */
+  @MCRProperty(name = "MaxBytesPerFile", required = false)
+  public void setMaxBytesPerFile(String maxBytesPerFile) {
+    this.maxBytesPerFile = Long.parseLong(maxBytesPerFile.trim());
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * Timeout in seconds for connecting to the Nextcloud.
+   */
+  @MCRProperty(name = "ConnectTimeout", required = false)
+  public void setConnectTimeout(String connectTimeout) {
+    this.connectTimeout = Duration.ofSeconds(Long.parseLong(connectTimeout.trim()));
+  }
+
+  public Duration getResponseTimeout() {
+    return responseTimeout;
+  }
+
+  /**
+   * Timeout in seconds for waiting on the response of the Nextcloud.
+   */
+  @MCRProperty(name = "ResponseTimeout", required = false)
+  public void setResponseTimeout(String responseTimeout) {
+    this.responseTimeout = Duration.ofSeconds(Long.parseLong(responseTimeout.trim()));
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * Number of retries of a failed upload (I/O error, 429 or 5xx).
+   */
+  @MCRProperty(name = "MaxRetries", required = false)
+  public void setMaxRetries(String maxRetries) {
+    this.maxRetries = Integer.parseInt(maxRetries.trim());
+  }
+
+  public Duration getRetryBackoff() {
+    return retryBackoff;
+  }
+
+  /**
+   * Delay in milliseconds before the first retry, doubled for every further retry.
+   */
+  @MCRProperty(name = "RetryBackoff", required = false)
+  public void setRetryBackoff(String retryBackoff) {
+    this.retryBackoff = Duration.ofMillis(Long.parseLong(retryBackoff.trim()));
+  }
+
   public String getNextcloudURL() {
     return nextcloudURL;
   }
@@ -388,4 +826,104 @@ public class VZGPublishPicaPatchCronJob extends MCRCronjob {
   public void setShareToken(String shareToken) {
     this.shareToken = shareToken;
   }
+
+  /**
+   * Result of converting a single document.
+   *
+   * @param id the id of the document
+   * @param ppn the PPN or null if the document is not publishable
+   * @param urn the first URN or null if the document is not publishable
+   * @param object the object loaded for the conversion, null if the document is not publishable
+   *     or was converted from its Solr fields
+   * @param lastModified the last modification time of the stored object when it was loaded, -1 if
+   *     the document was converted from its Solr fields
+   */
+  protected record PicaPatchCandidate(MCRObjectID id, String ppn, String urn, MCRObject object,
+      long lastModified) {
+
+    public boolean isPublishable() {
+      return ppn != null;
+    }
+  }
+
+  /**
+   * Collects converted documents into PICA+ patch files. A file is uploaded as soon as it reaches
+   * {@code MaxRecordsPerFile} records or {@code MaxBytesPerFile} bytes, and the servflags of its
+   * documents are committed right after the successful upload.
+   */
+  private final class PicaPatchChunker implements Closeable {
+
+    private final List<PicaPatchCandidate> documents = new ArrayList<>();
+
+    private final String baseURL = VZGPicaPatchTemplate.checkBaseURL(MCRFrontendUtil.getBaseURL());
+
+    private VZGPicaPatchSpool spool;
+
+    private long conversionStart;
+
+    private int chunkCount;
+
+    void add(PicaPatchCandidate candidate) {
+      try {
+        if (spool == null) {
+          spool = createSpool();
+          conversionStart = System.nanoTime();
+        }
+        writePicaPatchEntry(spool.getWriter(), baseURL, candidate.ppn(), candidate.urn());
+        documents.add(candidate);
+        if (isFull()) {
+          publish();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private boolean isFull() {
+      return (maxRecordsPerFile > 0 && documents.size() >= maxRecordsPerFile)
+          || (maxBytesPerFile > 0 && spool.getByteCount() >= maxBytesPerFile);
+    }
+
+    /**
+     * Upload the current chunk and commit the servflags of its documents.
+     *
+     * @throws PublishFailedException if the upload failed
+     */
+    void publish() throws IOException {
+      if (documents.isEmpty()) {
+        return;
+      }
+      chunkCount++;
+      logThroughput("Converted", documents.size(), conversionStart);
+      boolean success = publishPatchFile(spool);
+      spool.close();
+      spool = null;
+      if (!success) {
+        throw new PublishFailedException(
+            "Publishing PICA+ patch file " + chunkCount + " failed, aborting the run.");
+      }
+      commitPublishedFlags(documents);
+      documents.clear();
+    }
+
+    int getChunkCount() {
+      return chunkCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (spool != null) {
+        spool.close();
+      }
+    }
+  }
+
+  private static final class PublishFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    PublishFailedException(String message) {
+      super(message);
+    }
+  }
 }
@@ -0,0 +1,54 @@
+package de.gbv.reposis.vzg;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+import org.mycore.common.config.MCRConfiguration2;
+
+/**
+ * Resolves {@code vzgunapi:<ppn>} to the PICA-XML record of the PPN, served by a shared
+ * {@link VZGPicaXMLCache}. The cache is configured by the properties {@code VZG.UnAPI.*}, the
+ * base URL can point to a local stand-in of the unAPI for tests.
+ */
+public class VZGUnAPIResolver implements URIResolver {
+
+  public static final String SCHEME = "vzgunapi:";
+
+  @Override
+  public Source resolve(String href, String base) throws TransformerException {
+    String ppn = href.substring(href.indexOf(':') + 1);
+    if (!VZGPicaXMLCache.isValidPPN(ppn)) {
+      throw new TransformerException("Invalid PPN: " + ppn);
+    }
+    VZGPicaXMLCache cache = CacheHolder.CACHE;
+    byte[] record;
+    try {
+      record = cache.get(ppn);
+    } catch (IOException e) {
+      throw new TransformerException("Could not fetch PICA-XML of PPN " + ppn, e);
+    }
+    if (record == null) {
+      throw new TransformerException("No PICA-XML record found for PPN " + ppn);
+    }
+    return new StreamSource(new ByteArrayInputStream(record), cache.getURL(ppn));
+  }
+
+  private static final class CacheHolder {
+
+    private static final String PREFIX = "VZG.UnAPI.";
+
+    private static final VZGPicaXMLCache CACHE = new VZGPicaXMLCache(
+        MCRConfiguration2.getStringOrThrow(PREFIX + "BaseURL"),
+        MCRConfiguration2.getInt(PREFIX + "Cache.MaxSize").orElse(1000),
+        Duration.ofSeconds(MCRConfiguration2.getLong(PREFIX + "Cache.TTL").orElse(86_400L)),
+        MCRConfiguration2.getString(PREFIX + "Cache.Directory").filter(dir -> !dir.isBlank())
+            .map(Path::of).orElse(null),
+        MCRConfiguration2.getInt(PREFIX + "Cache.DiskMaxSize").orElse(10_000),
+        Duration.ofSeconds(MCRConfiguration2.getLong(PREFIX + "Timeout").orElse(10L)));
+  }
+}
@@ -0,0 +1,52 @@
+package de.gbv.reposis.vzg.cli;
+
+import de.gbv.reposis.vzg.VZGPPNBulkImport;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mycore.common.config.MCRConfiguration2;
+import org.mycore.frontend.cli.annotation.MCRCommand;
+import org.mycore.frontend.cli.annotation.MCRCommandGroup;
+
+@MCRCommandGroup(name = "VZG PPN Import Commands")
+public class VZGPPNImportCommands {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  @MCRCommand(syntax = "import ppns from file {0} with report {1}",
+      help = "Imports the PPNs of the text file {0}, one per line, and writes the result of every "
+          + "PPN (CREATED, DUPLICATE or FAILED) as CSV to file {1}. Lines starting with # are "
+          + "ignored. PPNs with a likely duplicate in the repository, a candidate of at least "
+          + "VZG.PPNImport.DuplicateMinScore, are not imported, weaker candidates are reported.",
+      order = 10)
+  public static void importPPNs(String ppnFile, String reportFile) throws IOException {
+    List<String> ppns = new ArrayList<>();
+    for (String line : Files.readAllLines(Path.of(ppnFile), StandardCharsets.UTF_8)) {
+      String ppn = line.trim();
+      if (!ppn.isEmpty() && !ppn.startsWith("#")) {
+        ppns.add(ppn);
+      }
+    }
+    LOGGER.info("Importing {} PPNs from {}", ppns.size(), ppnFile);
+
+    VZGPPNBulkImport bulkImport = new VZGPPNBulkImport(
+        MCRConfiguration2.getStringOrThrow("MCR.NameOfProject"),
+        MCRConfiguration2.getInt("VZG.PPNImport.Parallelism").orElse(8),
+        MCRConfiguration2.getInt("VZG.PPNImport.BatchSize").orElse(50),
+        MCRConfiguration2.getInt("VZG.PPNImport.DuplicateMinScore")
+            .orElse(VZGPPNBulkImport.DEFAULT_MIN_SCORE));
+    List<VZGPPNBulkImport.Result> results = bulkImport.run(ppns);
+
+    try (BufferedWriter writer = Files.newBufferedWriter(Path.of(reportFile),
+        StandardCharsets.UTF_8)) {
+      VZGPPNBulkImport.writeReport(results, writer);
+    }
+    LOGGER.info("Wrote import report to {}", reportFile);
+  }
+}
@@ -0,0 +1,85 @@
+package de.gbv.reposis.vzg.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A satisfiable byte range of a file, as requested with the HTTP {@code Range} header.
+ *
+ * @param first the position of the first byte
+ * @param last the position of the last byte, inclusive
+ */
+record ByteRange(long first, long last) {
+
+  /**
+   * more ranges are answered with the whole file, so a request cannot make us seek endlessly
+   */
+  static final int MAX_RANGES = 16;
+
+  private static final String BYTES_UNIT = "bytes=";
+
+  /**
+   * Parse a {@code Range} header.
+   *
+   * @param header the header value, may be null
+   * @param size the size of the file
+   * @return null if the header is missing, invalid or should be ignored, an empty list if no range
+   *     is satisfiable, the satisfiable ranges otherwise
+   */
+  static List<ByteRange> parse(String header, long size) {
+    if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+      return null;
+    }
+    String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    List<ByteRange> ranges = new ArrayList<>(specs.length);
+    for (String spec : specs) {
+      spec = spec.trim();
+      int dash = spec.indexOf('-');
+      if (dash < 0) {
+        return null;
+      }
+      try {
+        String firstPart = spec.substring(0, dash).trim();
+        String lastPart = spec.substring(dash + 1).trim();
+        if (firstPart.isEmpty()) {
+          // suffix range: the last n bytes
+          long suffixLength = Long.parseLong(lastPart);
+          if (suffixLength < 0) {
+            return null;
+          }
+          if (suffixLength > 0 && size > 0) {
+            ranges.add(new ByteRange(Math.max(0, size - suffixLength), size - 1));
+          }
+          continue;
+        }
+        long first = Long.parseLong(firstPart);
+        long last = lastPart.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPart);
+        if (first < 0 || last < first) {
+          return null;
+        }
+        if (first < size) {
+          ranges.add(new ByteRange(first, Math.min(last, size - 1)));
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return ranges;
+  }
+
+  long length() {
+    return last - first + 1;
+  }
+
+  /**
+   * @param size the size of the file
+   * @return the value of the {@code Content-Range} header
+   */
+  String toContentRange(long size) {
+    return String.format(Locale.ROOT, "bytes %d-%d/%d", first, last, size);
+  }
+}
@@ -0,0 +1,115 @@
+package de.gbv.reposis.vzg.resource;
+
+import de.gbv.reposis.vzg.service.ResolveMetrics;
+import de.gbv.reposis.vzg.service.ResolveTimer;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.mycore.datamodel.niofs.MCRPath;
+
+/**
+ * Copies content files to a response. The file is read through a seekable channel into one heap
+ * buffer, which is reused for all ranges of a response and written to the stream of the servlet
+ * container without another copy. Buffers of finished deliveries are pooled, so downloads do not
+ * allocate a new buffer each.
+ * <p>
+ * There is no zero-copy path: {@link java.nio.channels.FileChannel#transferTo} into the
+ * {@link OutputStream} of the response would read into a temporary direct buffer and copy it once
+ * more, and the sendfile support of Tomcat only works for requests which are not asynchronous,
+ * while {@link ResolveExecutor} answers all resolver requests asynchronously.
+ */
+final class FileDelivery implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int POOL_SIZE = 32;
+
+  private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private final SeekableByteChannel channel;
+
+  private byte[] buffer;
+
+  private FileDelivery(SeekableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Open a file for delivery.
+   *
+   * @param path the file, usually a {@link MCRPath}
+   * @return the opened file
+   * @throws IOException if the file could not be opened
+   */
+  static FileDelivery open(Path path) throws IOException {
+    return new FileDelivery(Files.newByteChannel(path));
+  }
+
+  /**
+   * Copy a part of the file.
+   *
+   * @param position the position of the first byte
+   * @param count the number of bytes
+   * @param out the target stream, not closed
+   * @throws IOException if the bytes could not be copied
+   */
+  void transfer(long position, long count, OutputStream out) throws IOException {
+    long start = System.nanoTime();
+    try {
+      copy(position, count, out);
+    } finally {
+      ResolveTimer timer = ResolveMetrics.timer("content.stream");
+      timer.record(System.nanoTime() - start);
+      timer.addBytes(count);
+    }
+  }
+
+  private void copy(long position, long count, OutputStream out) throws IOException {
+    if (buffer == null || (buffer.length < BUFFER_SIZE && buffer.length < count)) {
+      buffer = takeBuffer(count);
+    }
+    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    channel.position(position);
+    long remaining = count;
+    while (remaining > 0) {
+      byteBuffer.clear().limit((int) Math.min(buffer.length, remaining));
+      int read = channel.read(byteBuffer);
+      if (read < 0) {
+        throw new EOFException("File ended before byte " + (position + count - 1) + " was read.");
+      }
+      out.write(buffer, 0, read);
+      remaining -= read;
+    }
+  }
+
+  /**
+   * Take a pooled buffer, or allocate one which is only as large as needed for a small range.
+   */
+  private static byte[] takeBuffer(long count) {
+    byte[] pooled = BUFFERS.poll();
+    return pooled != null ? pooled : new byte[(int) Math.max(1, Math.min(BUFFER_SIZE, count))];
+  }
+
+  /**
+   * @return the number of buffers in the pool
+   */
+  static int getPooledBuffers() {
+    return BUFFERS.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (buffer != null && buffer.length == BUFFER_SIZE) {
+      BUFFERS.offer(buffer);
+    }
+    buffer = null;
+    channel.close();
+  }
+}
@@ -0,0 +1,70 @@
+package de.gbv.reposis.vzg.resource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the identifiers of a batch request, separated by whitespace or line breaks. The body is
+ * read in chunks and never held as a whole line, so the memory of a request is bounded by the
+ * maximum number and length of the identifiers, not by the size of the body.
+ */
+final class ResolveBatchReader {
+
+  /**
+   * longer identifiers are rejected, URNs and object IDs are much shorter
+   */
+  static final int MAX_IDENTIFIER_LENGTH = 1024;
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private ResolveBatchReader() {
+  }
+
+  /**
+   * Read the identifiers until the end of the body or the first one above the limits.
+   *
+   * @param reader the body
+   * @param maxIdentifiers the maximum number of identifiers
+   * @return the identifiers or null if there are more than maxIdentifiers or one is longer than
+   *     {@link #MAX_IDENTIFIER_LENGTH}
+   */
+  static List<String> read(Reader reader, int maxIdentifiers) throws IOException {
+    List<String> identifiers = new ArrayList<>();
+    StringBuilder identifier = new StringBuilder();
+    char[] buffer = new char[BUFFER_SIZE];
+    int count;
+    while ((count = reader.read(buffer)) >= 0) {
+      for (int i = 0; i < count; i++) {
+        char c = buffer[i];
+        if (!isWhitespace(c)) {
+          if (identifier.length() == MAX_IDENTIFIER_LENGTH) {
+            return null;
+          }
+          identifier.append(c);
+        } else if (!identifier.isEmpty()) {
+          if (identifiers.size() == maxIdentifiers) {
+            return null;
+          }
+          identifiers.add(identifier.toString());
+          identifier.setLength(0);
+        }
+      }
+    }
+    if (!identifier.isEmpty()) {
+      if (identifiers.size() == maxIdentifiers) {
+        return null;
+      }
+      identifiers.add(identifier.toString());
+    }
+    return identifiers;
+  }
+
+  /**
+   * @return true for the characters of the regular expression {@code \s}
+   */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
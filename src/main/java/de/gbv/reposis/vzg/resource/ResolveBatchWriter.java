@@ -0,0 +1,116 @@
+package de.gbv.reposis.vzg.resource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the result of a batch resolution as JSON array or as CSV with a header line. Every
+ * requested identifier gets one record with the object ID, the landing page URL and the content
+ * URL, which are null or empty if the identifier could not be resolved.
+ */
+final class ResolveBatchWriter {
+
+  static final String CSV_MEDIA_TYPE = "text/csv";
+
+  private final String baseURL;
+
+  /**
+   * @param baseURL the base URL of the application, ending with a slash
+   */
+  ResolveBatchWriter(String baseURL) {
+    this.baseURL = baseURL;
+  }
+
+  void writeJson(List<Entry> entries, Writer out) throws IOException {
+    out.write('[');
+    for (int i = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      out.write(i == 0 ? "\n" : ",\n");
+      out.write("{\"identifier\":");
+      writeJsonString(entry.identifier(), out);
+      out.write(",\"id\":");
+      writeJsonString(entry.objectId(), out);
+      out.write(",\"url\":");
+      writeJsonString(getLandingPageURL(entry), out);
+      out.write(",\"content\":");
+      writeJsonString(getContentURL(entry), out);
+      out.write('}');
+    }
+    out.write("\n]\n");
+  }
+
+  void writeCsv(List<Entry> entries, Writer out) throws IOException {
+    out.write("identifier,id,url,content\r\n");
+    for (Entry entry : entries) {
+      writeCsvField(entry.identifier(), out);
+      out.write(',');
+      writeCsvField(entry.objectId(), out);
+      out.write(',');
+      writeCsvField(getLandingPageURL(entry), out);
+      out.write(',');
+      writeCsvField(getContentURL(entry), out);
+      out.write("\r\n");
+    }
+  }
+
+  private String getLandingPageURL(Entry entry) {
+    return entry.objectId() == null ? null : getLandingPageURL(baseURL, entry.objectId());
+  }
+
+  /**
+   * @param baseURL the base URL of the application, ending with a slash
+   * @param objectId the object ID
+   * @return the URL of the landing page of the object, also the target of the resolver redirects
+   */
+  static String getLandingPageURL(String baseURL, String objectId) {
+    return baseURL + "receive/" + objectId;
+  }
+
+  private String getContentURL(Entry entry) {
+    return entry.objectId() == null ? null
+        : baseURL + "rsc/resolve/id/" + entry.objectId() + "/content";
+  }
+
+  private static void writeJsonString(String value, Writer out) throws IOException {
+    if (value == null) {
+      out.write("null");
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+        out.write(c);
+      } else if (c < 0x20) {
+        out.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        out.write(c);
+      }
+    }
+    out.write('"');
+  }
+
+  private static void writeCsvField(String value, Writer out) throws IOException {
+    if (value == null) {
+      return;
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    out.write(value.replace("\"", "\"\""));
+    out.write('"');
+  }
+
+  /**
+   * @param identifier the requested URN or object ID
+   * @param objectId the resolved object ID or null
+   */
+  record Entry(String identifier, String objectId) {
+  }
+}
@@ -0,0 +1,121 @@
+package de.gbv.reposis.vzg.resource;
+
+import de.gbv.reposis.vzg.service.ResolveMetrics;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mycore.common.MCRSession;
+import org.mycore.common.MCRSessionMgr;
+import org.mycore.common.MCRUserInformation;
+import org.mycore.common.config.MCRConfiguration2;
+import org.mycore.frontend.MCRFrontendUtil;
+import org.mycore.util.concurrent.MCRFixedUserRunnable;
+
+/**
+ * Resolves requests of {@link ResolveResource} on virtual threads, so slow Solr or store responses
+ * do not block the threads of the servlet container. At most
+ * {@code VZG.Resolve.Async.MaxConcurrency} requests are resolved at the same time, a request which
+ * is not answered within {@code VZG.Resolve.Async.Timeout} seconds gets a 503 response.
+ */
+final class ResolveExecutor {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final long TIMEOUT =
+      MCRConfiguration2.getLong("VZG.Resolve.Async.Timeout").orElse(10L);
+
+  private static final Semaphore PERMITS =
+      new Semaphore(MCRConfiguration2.getInt("VZG.Resolve.Async.MaxConcurrency").orElse(32));
+
+  private static final ExecutorService EXECUTOR = Executors
+      .newThreadPerTaskExecutor(Thread.ofVirtual().name("vzg-resolve-", 0).factory());
+
+  private ResolveExecutor() {
+  }
+
+  /**
+   * Resolve a request in the background, in a new session of the current user. The worker session
+   * is not bound to the servlet request, so the base URL and the language of the request are
+   * captured here and passed to the resolver. The response is only built by the resolver, writing
+   * its entity happens after the session was closed.
+   *
+   * @param asyncResponse the suspended response
+   * @param resolver builds the response
+   */
+  static void resolve(AsyncResponse asyncResponse, Function<RequestContext, Response> resolver) {
+    MCRSession session = MCRSessionMgr.getCurrentSession();
+    MCRUserInformation user = session.getUserInformation();
+    RequestContext context =
+        new RequestContext(MCRFrontendUtil.getBaseURL(), session.getCurrentLanguage());
+    asyncResponse.setTimeout(TIMEOUT, TimeUnit.SECONDS);
+    asyncResponse.setTimeoutHandler(response -> response.resume(unavailable()));
+    long submitted = System.nanoTime();
+    try {
+      EXECUTOR.execute(() -> resolve(asyncResponse, resolver, context, user, submitted));
+    } catch (RejectedExecutionException e) {
+      asyncResponse.resume(unavailable());
+    }
+  }
+
+  private static void resolve(AsyncResponse asyncResponse,
+      Function<RequestContext, Response> resolver, RequestContext context, MCRUserInformation user,
+      long submitted) {
+    AtomicReference<Response> response = new AtomicReference<>();
+    try {
+      if (!PERMITS.tryAcquire(TIMEOUT * 1000 - elapsedMillis(submitted), TimeUnit.MILLISECONDS)) {
+        // the timeout handler answers the request
+        return;
+      }
+      try {
+        ResolveMetrics.timer("async.wait").record(System.nanoTime() - submitted);
+        if (asyncResponse.isDone()) {
+          return;
+        }
+        new MCRFixedUserRunnable(() -> {
+          MCRSessionMgr.getCurrentSession().setCurrentLanguage(context.language());
+          response.set(resolver.apply(context));
+        }, user).run();
+      } finally {
+        PERMITS.release();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      asyncResponse.resume(unavailable());
+      return;
+    } catch (RuntimeException e) {
+      LOGGER.error("Error while resolving request", e);
+      asyncResponse.resume(e);
+      return;
+    }
+    // the entity is streamed by the resuming thread, without holding a permit
+    asyncResponse.resume(response.get());
+  }
+
+  private static long elapsedMillis(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private static Response unavailable() {
+    return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+        .header("Retry-After", TIMEOUT).type(MediaType.TEXT_PLAIN_TYPE)
+        .entity("The resolver is busy, please try again later.").build();
+  }
+
+  /**
+   * The state of the servlet request which the session of the worker thread does not have.
+   *
+   * @param baseURL the base URL of the application, ending with a slash
+   * @param language the current language of the requesting session
+   */
+  record RequestContext(String baseURL, String language) {
+  }
+}
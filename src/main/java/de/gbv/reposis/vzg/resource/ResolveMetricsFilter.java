@@ -0,0 +1,41 @@
+package de.gbv.reposis.vzg.resource;
+
+import de.gbv.reposis.vzg.service.ResolveMetrics;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Records count, status code and latency of every {@link ResolveResource} method in the timer
+ * {@code endpoint.<method name>}. The latency ends when the response headers are ready, the time
+ * spent streaming a content file is recorded separately by the {@code content.stream} timer.
+ */
+@Provider
+public class ResolveMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  private static final String START_PROPERTY = ResolveMetricsFilter.class.getName() + ".start";
+
+  @Context
+  private ResourceInfo resourceInfo;
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    if (resourceInfo.getResourceClass() == ResolveResource.class) {
+      requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+    if (requestContext.getProperty(START_PROPERTY) instanceof Long start
+        && resourceInfo.getResourceMethod() != null) {
+      ResolveMetrics.timer("endpoint." + resourceInfo.getResourceMethod().getName())
+          .record(System.nanoTime() - start, responseContext.getStatus());
+    }
+  }
+}
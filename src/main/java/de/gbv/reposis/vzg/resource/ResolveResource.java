@@ -1,94 +1,285 @@
 package de.gbv.reposis.vzg.resource;
 
+import de.gbv.reposis.vzg.service.ContentFileInfo;
+import de.gbv.reposis.vzg.service.ResolveMetrics;
 import de.gbv.reposis.vzg.service.ResolveService;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.FormParam;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HEAD;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import org.jdom2.Document;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
+import org.mycore.access.MCRAccessManager;
 import org.mycore.common.MCRException;
+import org.mycore.common.config.MCRConfiguration2;
 import org.mycore.datamodel.metadata.MCRMetadataManager;
 import org.mycore.datamodel.metadata.MCRObject;
 import org.mycore.datamodel.metadata.MCRObjectID;
-import org.mycore.frontend.MCRFrontendUtil;
-import org.mycore.solr.MCRSolrCoreManager;
-import org.mycore.solr.auth.MCRSolrAuthenticationManager;
 
 @Path("resolve/")
 public class ResolveResource {
 
-  public ResolveResource() {
-    resolveService = new ResolveService(MCRSolrCoreManager.getMainSolrCore(),
-        MCRSolrAuthenticationManager.obtainInstance());
-  }
+  private static final String METRICS_PERMISSION = "read-resolve-metrics";
+
+  private static final String RANGE = "Range";
+
+  private static final String IF_RANGE = "If-Range";
+
+  private static final String ACCEPT_RANGES = "Accept-Ranges";
+
+  private static final String CONTENT_RANGE = "Content-Range";
+
+  private static final String VARY = "Vary";
+
+  private static final String VARY_METADATA = "Accept, Accept-Encoding";
 
-  private final ResolveService resolveService;
+  private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+  private static final MediaType CSV_TYPE = MediaType.valueOf(ResolveBatchWriter.CSV_MEDIA_TYPE);
+
+  private static final int BATCH_MAX_SIZE =
+      MCRConfiguration2.getInt("VZG.Resolve.Batch.MaxSize").orElse(1000);
+
+  private static final int BATCH_SOLR_CHUNK_SIZE =
+      MCRConfiguration2.getInt("VZG.Resolve.Batch.SolrChunkSize").orElse(100);
+
+  private final ResolveService resolveService = ResolveService.obtainInstance();
 
   @Path("urn/{urn}")
   @GET
-  public Response resolveURN(@PathParam("urn") String urn) {
+  public void resolveURN(@PathParam("urn") String urn,
+      @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse, context -> resolveURN(urn, context.baseURL()));
+  }
+
+  private Response resolveURN(String urn, String baseURL) {
     MCRObjectID objectID = resolveService.resolveMyCoReIdByUrn(urn);
     if (objectID == null) {
       return Response.status(Response.Status.NOT_FOUND).entity("No object found for URN: " + urn)
           .type(MediaType.TEXT_PLAIN_TYPE).build();
     } else {
-      URI redirectURL = getRedirectURL(objectID.toString());
+      URI redirectURL = getRedirectURL(baseURL, objectID.toString());
       return Response.temporaryRedirect(redirectURL).build();
     }
   }
 
   @Path("urn/{urn}/metadata")
   @GET
-  public Response resolveURNXML(@PathParam("urn") String urn) {
-    MCRObject object = resolveService.resolveMyCoreObjectByUrn(urn);
-    if (object == null) {
+  public void resolveURNXML(@PathParam("urn") String urn, @QueryParam("pretty") Boolean pretty,
+      @Context Request request, @Context HttpHeaders headers,
+      @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse, context -> resolveURNXML(urn, pretty, request, headers));
+  }
+
+  private Response resolveURNXML(String urn, Boolean pretty, Request request,
+      HttpHeaders headers) {
+    MCRObjectID objectID = resolveService.resolveMyCoReIdByUrn(urn);
+    if (objectID == null) {
       return Response.status(Response.Status.NOT_FOUND).entity("No object found for URN: " + urn)
           .type(MediaType.TEXT_PLAIN_TYPE).build();
-    } else {
-      Document objectXML = object.createXML();
-      String xmlAsString = new XMLOutputter(Format.getPrettyFormat()).outputString(objectXML);
-      return Response.ok(xmlAsString).type(MediaType.TEXT_XML_TYPE).build();
     }
+    return metadataResponse(objectID, pretty, request, headers, "No object found for URN: " + urn);
   }
 
   @Path("urn/{urn}/content")
   @GET
-  public Response resolveURNContent(@PathParam("urn") String urn) {
-    java.nio.file.Path path = resolveService.resolveContentFilePathByUrn(urn);
-    if (path == null) {
-      return Response.status(Response.Status.NOT_FOUND)
-          .entity("No content file found for URN: " + urn).type(MediaType.TEXT_PLAIN_TYPE).build();
-    } else {
-      return streamPath(path);
-    }
+  public void resolveURNContent(@PathParam("urn") String urn,
+      @HeaderParam(RANGE) String range, @HeaderParam(IF_RANGE) String ifRange,
+      @Context Request request, @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse,
+        context -> contentResponse(resolveService.resolveContentFilePathByUrn(urn), range, ifRange,
+            request, "No content file found for URN: " + urn, false));
+  }
+
+  @Path("urn/{urn}/content")
+  @HEAD
+  public void resolveURNContentHead(@PathParam("urn") String urn,
+      @Context Request request, @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse,
+        context -> contentResponse(resolveService.resolveContentFilePathByUrn(urn), null, null,
+            request, "No content file found for URN: " + urn, true));
   }
 
   @Path("id/{id}")
   @GET
-  public Response resolveID(@PathParam("id") String id) {
+  public void resolveID(@PathParam("id") String id, @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse, context -> resolveID(id, context.baseURL()));
+  }
+
+  private Response resolveID(String id, String baseURL) {
     if (!MCRObjectID.isValid(id) || !MCRMetadataManager.exists(MCRObjectID.getInstance(id))) {
       return Response.status(Response.Status.NOT_FOUND).entity("No object found for ID: " + id)
           .type(MediaType.TEXT_PLAIN_TYPE).build();
 
     } else {
-      URI redirectURL = getRedirectURL(id);
+      URI redirectURL = getRedirectURL(baseURL, id);
       return Response.temporaryRedirect(redirectURL).build();
     }
   }
 
-  private static URI getRedirectURL(String id) {
+  /**
+   * The request counts, status codes and latencies of the resolver and the statistics of its
+   * caches, for users with the permission {@value #METRICS_PERMISSION}.
+   */
+  @Path("metrics")
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getMetrics() {
+    if (!MCRAccessManager.checkPermission(METRICS_PERMISSION)) {
+      return Response.status(Response.Status.FORBIDDEN).type(MediaType.TEXT_PLAIN_TYPE)
+          .entity("Permission " + METRICS_PERMISSION + " is required.").build();
+    }
+    StreamingOutput stream = os -> {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+      ResolveMetrics.writeJson(writer);
+      writer.flush();
+    };
+    return Response.ok(stream).type(MediaType.APPLICATION_JSON + ";charset=UTF-8")
+        .header("Cache-Control", "no-store").build();
+  }
+
+  /**
+   * Resolve a list of URNs and object IDs, separated by whitespace or line breaks.
+   */
+  @Path("batch")
+  @POST
+  @Consumes(MediaType.TEXT_PLAIN)
+  @Produces({ MediaType.APPLICATION_JSON, ResolveBatchWriter.CSV_MEDIA_TYPE })
+  public void resolveBatch(InputStream body, @Context HttpHeaders headers,
+      @Suspended AsyncResponse asyncResponse) throws IOException {
+    List<String> identifiers;
+    try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+      identifiers = ResolveBatchReader.read(reader, BATCH_MAX_SIZE);
+    }
+    if (identifiers == null) {
+      asyncResponse.resume(batchTooLarge());
+      return;
+    }
+    ResolveExecutor.resolve(asyncResponse,
+        context -> resolveBatch(identifiers, headers, context.baseURL()));
+  }
+
+  /**
+   * Resolve the URNs and object IDs of the repeated form parameter {@code identifier}.
+   */
+  @Path("batch")
+  @POST
+  @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+  @Produces({ MediaType.APPLICATION_JSON, ResolveBatchWriter.CSV_MEDIA_TYPE })
+  public void resolveBatchForm(@FormParam("identifier") List<String> identifiers,
+      @Context HttpHeaders headers, @Suspended AsyncResponse asyncResponse) {
+    List<String> nonBlankIdentifiers = identifiers.stream().map(String::trim)
+        .filter(identifier -> !identifier.isEmpty()).toList();
+    if (nonBlankIdentifiers.size() > BATCH_MAX_SIZE || nonBlankIdentifiers.stream()
+        .anyMatch(identifier -> identifier.length() > ResolveBatchReader.MAX_IDENTIFIER_LENGTH)) {
+      asyncResponse.resume(batchTooLarge());
+      return;
+    }
+    ResolveExecutor.resolve(asyncResponse,
+        context -> resolveBatch(nonBlankIdentifiers, headers, context.baseURL()));
+  }
+
+  private static Response batchTooLarge() {
+    return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+        .entity("A batch may contain at most " + BATCH_MAX_SIZE + " identifiers of at most "
+            + ResolveBatchReader.MAX_IDENTIFIER_LENGTH + " characters.")
+        .type(MediaType.TEXT_PLAIN_TYPE).build();
+  }
+
+  private Response resolveBatch(List<String> identifiers, HttpHeaders headers,
+      String baseURL) {
+    List<String> urns = identifiers.stream().filter(ResolveResource::isUrn).distinct().toList();
+    Map<String, MCRObjectID> urnObjectIds =
+        resolveService.resolveMyCoReIdsByUrns(urns, BATCH_SOLR_CHUNK_SIZE);
+
+    List<ResolveBatchWriter.Entry> entries = new ArrayList<>(identifiers.size());
+    for (String identifier : identifiers) {
+      MCRObjectID objectId = null;
+      if (isUrn(identifier)) {
+        objectId = urnObjectIds.get(identifier);
+      } else if (MCRObjectID.isValid(identifier)) {
+        MCRObjectID candidate = MCRObjectID.getInstance(identifier);
+        objectId = MCRMetadataManager.exists(candidate) ? candidate : null;
+      }
+      entries.add(new ResolveBatchWriter.Entry(identifier,
+          objectId == null ? null : objectId.toString()));
+    }
+
+    ResolveBatchWriter batchWriter = new ResolveBatchWriter(baseURL);
+    boolean csv = prefersCsv(headers);
+    StreamingOutput stream = os -> {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+      if (csv) {
+        batchWriter.writeCsv(entries, writer);
+      } else {
+        batchWriter.writeJson(entries, writer);
+      }
+      writer.flush();
+    };
+    return Response.ok(stream)
+        .type(csv ? ResolveBatchWriter.CSV_MEDIA_TYPE + ";charset=UTF-8"
+            : MediaType.APPLICATION_JSON + ";charset=UTF-8")
+        .build();
+  }
+
+  private static boolean isUrn(String identifier) {
+    return identifier.regionMatches(true, 0, "urn:", 0, 4);
+  }
+
+  private static boolean prefersCsv(HttpHeaders headers) {
+    // the acceptable media types are sorted by preference
+    for (MediaType mediaType : headers.getAcceptableMediaTypes()) {
+      if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+        return false;
+      }
+      if (!mediaType.isWildcardSubtype() && mediaType.isCompatible(CSV_TYPE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static URI getRedirectURL(String baseURL, String id) {
     URI redirectURL = null;
 
     try {
-      redirectURL = new URI(MCRFrontendUtil.getBaseURL() + "receive/" + id);
+      redirectURL = new URI(ResolveBatchWriter.getLandingPageURL(baseURL, id));
     } catch (URISyntaxException e) {
       throw new MCRException(e);
     }
@@ -97,69 +288,241 @@ public class ResolveResource {
 
   @Path("id/{id}/metadata")
   @GET
-  public Response resolveIDXML(@PathParam("id") String id) {
+  public void resolveIDXML(@PathParam("id") String id, @QueryParam("pretty") Boolean pretty,
+      @Context Request request, @Context HttpHeaders headers,
+      @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse, context -> resolveIDXML(id, pretty, request, headers));
+  }
+
+  private Response resolveIDXML(String id, Boolean pretty, Request request, HttpHeaders headers) {
     if (!MCRObjectID.isValid(id)) {
       return Response.status(Response.Status.BAD_REQUEST).entity("Invalid MyCoRe Object ID: " + id)
           .type(MediaType.TEXT_PLAIN_TYPE).build();
     }
     MCRObjectID mcrObjectID = MCRObjectID.getInstance(id);
-    MCRObject object = resolveService.resolveMyCoReObjectByMCRObjectId(mcrObjectID);
+    return metadataResponse(mcrObjectID, pretty, request, headers,
+        "No object found for ID: " + id);
+  }
+
+  /**
+   * Send the XML of an object. The validators are derived from the last modification of the
+   * stored metadata, so a conditional request is answered before the object is loaded. The XML is
+   * written compact, unless requested otherwise or by a browser, and gzip compressed if accepted.
+   */
+  private Response metadataResponse(MCRObjectID objectID, Boolean pretty, Request request,
+      HttpHeaders headers, String notFoundMessage) {
+    long lastModified = resolveService.getLastModified(objectID);
+    if (lastModified < 0) {
+      return Response.status(Response.Status.NOT_FOUND).entity(notFoundMessage)
+          .type(MediaType.TEXT_PLAIN_TYPE).build();
+    }
+    boolean prettyPrint = pretty != null ? pretty : acceptsHtml(headers);
+    boolean gzip = acceptsGzip(headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+    Date lastModifiedDate = new Date(lastModified);
+    // every representation needs its own strong entity tag
+    EntityTag entityTag = new EntityTag(objectID + "-" + Long.toHexString(lastModified)
+        + (prettyPrint ? "-pretty" : "") + (gzip ? "-gzip" : ""));
+    Response.ResponseBuilder notModified =
+        request.evaluatePreconditions(lastModifiedDate, entityTag);
+    if (notModified != null) {
+      return notModified.header(VARY, VARY_METADATA).build();
+    }
+
+    MCRObject object = resolveService.resolveMyCoReObjectByMCRObjectId(objectID);
     if (object == null) {
-      return Response.status(Response.Status.NOT_FOUND).entity("No object found for ID: " + id)
+      return Response.status(Response.Status.NOT_FOUND).entity(notFoundMessage)
           .type(MediaType.TEXT_PLAIN_TYPE).build();
-    } else {
-      Document objectXML = object.createXML();
-      String xmlAsString = new XMLOutputter(Format.getPrettyFormat()).outputString(objectXML);
-      return Response.ok(xmlAsString).type(MediaType.TEXT_XML_TYPE).build();
     }
+    Document objectXML = object.createXML();
+    XMLOutputter outputter =
+        new XMLOutputter(prettyPrint ? Format.getPrettyFormat() : Format.getCompactFormat());
+    StreamingOutput stream = os -> {
+      if (gzip) {
+        GZIPOutputStream gzipStream = new GZIPOutputStream(os, GZIP_BUFFER_SIZE);
+        outputter.output(objectXML, gzipStream);
+        gzipStream.finish();
+      } else {
+        outputter.output(objectXML, os);
+      }
+    };
+    Response.ResponseBuilder response = Response.ok(stream).type(MediaType.TEXT_XML_TYPE)
+        .lastModified(lastModifiedDate).tag(entityTag).header(VARY, VARY_METADATA);
+    if (gzip) {
+      response.encoding("gzip");
+    }
+    return response.build();
+  }
+
+  private static boolean acceptsHtml(HttpHeaders headers) {
+    return headers.getAcceptableMediaTypes().stream()
+        .anyMatch(type -> "text".equals(type.getType()) && "html".equals(type.getSubtype()));
+  }
+
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      if (!"gzip".equalsIgnoreCase(parameters[0].trim())) {
+        continue;
+      }
+      for (int i = 1; i < parameters.length; i++) {
+        String parameter = parameters[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            return Double.parseDouble(parameter.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return false;
   }
 
   @Path("id/{id}/content")
   @GET
-  public Response resolveIDContent(@PathParam("id") String id) {
+  public void resolveIDContent(@PathParam("id") String id, @HeaderParam(RANGE) String range,
+      @HeaderParam(IF_RANGE) String ifRange, @Context Request request,
+      @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse,
+        context -> resolveIDContent(id, range, ifRange, request, false));
+  }
+
+  @Path("id/{id}/content")
+  @HEAD
+  public void resolveIDContentHead(@PathParam("id") String id, @Context Request request,
+      @Suspended AsyncResponse asyncResponse) {
+    ResolveExecutor.resolve(asyncResponse,
+        context -> resolveIDContent(id, null, null, request, true));
+  }
+
+  private Response resolveIDContent(String id, String range, String ifRange, Request request,
+      boolean head) {
     if (!MCRObjectID.isValid(id)) {
       return Response.status(Response.Status.BAD_REQUEST).entity("Invalid MyCoRe Object ID: " + id)
           .type(MediaType.TEXT_PLAIN_TYPE).build();
     }
     MCRObjectID mcrObjectID = MCRObjectID.getInstance(id);
-    java.nio.file.Path path = resolveService.resolveContentFilePathByMCRObjectId(mcrObjectID);
-    if (path == null) {
-      return Response.status(Response.Status.NOT_FOUND)
-          .entity("No content file found for ID: " + id).type(MediaType.TEXT_PLAIN_TYPE).build();
+    return contentResponse(resolveService.resolveContentFilePathByMCRObjectId(mcrObjectID), range,
+        ifRange, request, "No content file found for ID: " + id, head);
+  }
+
+  /**
+   * Send a content file or, for HEAD requests, only its headers. The headers come from the cached
+   * {@link ContentFileInfo}, so HEAD and conditional requests touch the store at most once per
+   * revalidation interval, see {@link ResolveService#getContentFileInfo(java.nio.file.Path)}.
+   */
+  private Response contentResponse(java.nio.file.Path path, String range, String ifRange,
+      Request request, String notFoundMessage, boolean head) {
+    ContentFileInfo fileInfo = path == null ? null : resolveService.getContentFileInfo(path);
+    if (fileInfo == null) {
+      return Response.status(Response.Status.NOT_FOUND).entity(notFoundMessage)
+          .type(MediaType.TEXT_PLAIN_TYPE).build();
+    }
+    long fileSize = fileInfo.size();
+    Instant lastModified = fileInfo.lastModified();
+    String contentType = fileInfo.contentType();
+    // the stored checksum, or size and modification time, change with every new upload
+    EntityTag entityTag = new EntityTag(fileInfo.md5() != null ? fileInfo.md5()
+        : Long.toHexString(fileSize) + "-" + Long.toHexString(lastModified.toEpochMilli()));
+    Response.ResponseBuilder notModified =
+        request.evaluatePreconditions(Date.from(lastModified), entityTag);
+    if (notModified != null) {
+      return notModified.build();
+    }
+
+    List<ByteRange> ranges = head || !isRangeApplicable(ifRange, entityTag, lastModified) ? null
+        : ByteRange.parse(range, fileSize);
+    Response.ResponseBuilder response;
+    if (ranges == null) {
+      response = Response.ok().type(contentType).header("Content-Length", fileSize);
+      if (!head) {
+        // use streaming instead of file entity to avoid loading the whole file into memory
+        StreamingOutput stream = os -> {
+          try (FileDelivery in = FileDelivery.open(path)) {
+            in.transfer(0, fileSize, os);
+          }
+        };
+        response.entity(stream);
+      }
+    } else if (ranges.isEmpty()) {
+      return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+          .header(ACCEPT_RANGES, "bytes").header(CONTENT_RANGE, "bytes */" + fileSize).build();
+    } else if (ranges.size() == 1) {
+      ByteRange byteRange = ranges.getFirst();
+      StreamingOutput stream = os -> {
+        try (FileDelivery in = FileDelivery.open(path)) {
+          in.transfer(byteRange.first(), byteRange.length(), os);
+        }
+      };
+      response = Response.status(Response.Status.PARTIAL_CONTENT).entity(stream).type(contentType)
+          .header("Content-Length", byteRange.length())
+          .header(CONTENT_RANGE, byteRange.toContentRange(fileSize));
     } else {
-      return streamPath(path);
+      response = streamMultipleRanges(path, ranges, contentType, fileSize);
     }
+
+    return response.header(ACCEPT_RANGES, "bytes").lastModified(Date.from(lastModified))
+        .tag(entityTag)
+        .header("Content-Disposition", "attachment; filename=\"" + fileInfo.fileName() + "\"")
+        .build();
   }
 
-  private static Response streamPath(java.nio.file.Path path) {
-    long fileSize;
-    try {
-      fileSize = Files.size(path);
-    } catch (IOException e) {
-      throw new MCRException(e);
+  /**
+   * Check the If-Range header, which allows a partial response only if it contains the current
+   * entity tag or the date of the last modification of the file.
+   */
+  private static boolean isRangeApplicable(String ifRange, EntityTag entityTag,
+      Instant lastModified) {
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("W/")) {
+      // weak entity tags must not be used for ranges
+      return false;
+    }
+    if (ifRange.startsWith("\"")) {
+      return ifRange.trim().equals("\"" + entityTag.getValue() + "\"");
     }
-
-    String contentType;
     try {
-      contentType = Files.probeContentType(path);
-    } catch (IOException e) {
-      throw new MCRException(e);
+      Instant date = ZonedDateTime.parse(ifRange.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+          .toInstant();
+      return date.getEpochSecond() == lastModified.getEpochSecond();
+    } catch (DateTimeParseException e) {
+      return false;
     }
+  }
 
-    if (contentType == null) {
-      contentType = MediaType.APPLICATION_OCTET_STREAM;
+  private static Response.ResponseBuilder streamMultipleRanges(java.nio.file.Path path,
+      List<ByteRange> ranges, String contentType, long fileSize) {
+    String boundary = UUID.randomUUID().toString();
+    List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+    long contentLength = 0;
+    for (ByteRange byteRange : ranges) {
+      byte[] partHeader = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\n"
+          + CONTENT_RANGE + ": " + byteRange.toContentRange(fileSize) + "\r\n\r\n")
+          .getBytes(StandardCharsets.US_ASCII);
+      partHeaders.add(partHeader);
+      contentLength += partHeader.length + byteRange.length();
     }
-    // use streaming instead of file entity to avoid loading the whole file into memory
+    byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    contentLength += end.length;
+
     StreamingOutput stream = os -> {
-      try (java.io.InputStream in = Files.newInputStream(path)) {
-        in.transferTo(os);
+      try (FileDelivery in = FileDelivery.open(path)) {
+        for (int i = 0; i < ranges.size(); i++) {
+          os.write(partHeaders.get(i));
+          in.transfer(ranges.get(i).first(), ranges.get(i).length(), os);
+        }
+        os.write(end);
       }
     };
-
-    String fileName = path.getFileName().toString();
-
-    return Response.ok(stream).type(contentType).header("Content-Length", fileSize)
-        .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"").build();
+    return Response.status(Response.Status.PARTIAL_CONTENT).entity(stream)
+        .type("multipart/byteranges; boundary=" + boundary)
+        .header("Content-Length", contentLength);
   }
 
 }
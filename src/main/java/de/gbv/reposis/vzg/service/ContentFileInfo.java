@@ -0,0 +1,17 @@
+package de.gbv.reposis.vzg.service;
+
+import java.time.Instant;
+
+/**
+ * The metadata of a content file needed for the response headers, see
+ * {@link ResolveService#getContentFileInfo(java.nio.file.Path)}.
+ *
+ * @param fileName the name of the file
+ * @param contentType the probed content type or {@code application/octet-stream}
+ * @param size the size in bytes
+ * @param lastModified the last modification of the file
+ * @param md5 the checksum stored with the file or null if the store does not provide one
+ */
+public record ContentFileInfo(String fileName, String contentType, long size,
+                              Instant lastModified, String md5) {
+}
@@ -0,0 +1,333 @@
+package de.gbv.reposis.vzg.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A bounded in memory cache with least recently used eviction and a time to live per entry. A
+ * loader result of null is cached as well, with its own, usually shorter time to live, so repeated
+ * lookups of unknown keys do not reach the backend either. Values are loaded outside of the lock,
+ * concurrent misses of the same key may therefore load it more than once. The loads in progress
+ * are tracked per key: a load of a key, or a load returning a value, which is invalidated while it
+ * runs is returned but not cached, so it cannot put the outdated value back. Invalidations of
+ * other keys and values do not affect it.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ResolveCache<K, V> implements ResolveCacheMBean {
+
+  private final int maxSize;
+
+  private final long ttlNanos;
+
+  private final long negativeTtlNanos;
+
+  private final LongSupplier clock;
+
+  private final LinkedHashMap<K, Entry<V>> entries;
+
+  // the keys of the cached values other than null, guarded by entries
+  private final Map<V, Set<K>> keysByValue = new HashMap<>();
+
+  // the loads in progress, guarded by entries
+  private final Map<K, Load<V>> loads = new HashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maxSize the maximum number of entries, 0 disables the cache
+   * @param ttl the time to live of found values
+   * @param negativeTtl the time to live of null values
+   */
+  public ResolveCache(int maxSize, Duration ttl, Duration negativeTtl) {
+    this(maxSize, ttl, negativeTtl, System::nanoTime);
+  }
+
+  ResolveCache(int maxSize, Duration ttl, Duration negativeTtl, LongSupplier clock) {
+    this.maxSize = Math.max(0, maxSize);
+    this.ttlNanos = ttl.toNanos();
+    this.negativeTtlNanos = negativeTtl.toNanos();
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > ResolveCache.this.maxSize) {
+          evictions.increment();
+          unindex(eldest.getKey(), eldest.getValue().value());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached value of the key or loads and caches it.
+   *
+   * @param key the key
+   * @param loader loads the value of a key, may return null
+   * @return the value or null if the loader did not find one
+   */
+  public V get(K key, Function<K, V> loader) {
+    long now = clock.getAsLong();
+    Load<V> load;
+    synchronized (entries) {
+      Entry<V> entry = entries.get(key);
+      if (entry != null) {
+        if (now - entry.expires() < 0) {
+          hits.increment();
+          return entry.value();
+        }
+        remove(key);
+      }
+      load = startLoad(key);
+    }
+    misses.increment();
+    V value;
+    try {
+      value = loader.apply(key);
+    } catch (RuntimeException | Error e) {
+      synchronized (entries) {
+        finishLoad(key, load, null);
+      }
+      throw e;
+    }
+    long ttl = value == null ? negativeTtlNanos : ttlNanos;
+    synchronized (entries) {
+      if (finishLoad(key, load, value) && maxSize > 0) {
+        put(key, value, clock.getAsLong() + ttl);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns the cached values of the keys and loads the missing ones with a single loader call.
+   *
+   * @param keys the keys
+   * @param loader loads the values of the given keys, keys without a value may be left out
+   * @return the values of all keys, null for keys the loader did not find a value for
+   */
+  public Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+    Map<K, V> values = new HashMap<>();
+    Map<K, Load<V>> missing = new LinkedHashMap<>();
+    long now = clock.getAsLong();
+    synchronized (entries) {
+      for (K key : keys) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.expires() < 0) {
+          values.put(key, entry.value());
+        } else if (!missing.containsKey(key)) {
+          if (entry != null) {
+            remove(key);
+          }
+          missing.put(key, startLoad(key));
+        }
+      }
+    }
+    hits.add(values.size());
+    if (missing.isEmpty()) {
+      return values;
+    }
+    misses.add(missing.size());
+    Map<K, V> loaded;
+    try {
+      loaded = loader.apply(Collections.unmodifiableSet(missing.keySet()));
+    } catch (RuntimeException | Error e) {
+      synchronized (entries) {
+        missing.forEach((key, load) -> finishLoad(key, load, null));
+      }
+      throw e;
+    }
+    long loadedAt = clock.getAsLong();
+    synchronized (entries) {
+      missing.forEach((key, load) -> {
+        V value = loaded.get(key);
+        values.put(key, value);
+        if (finishLoad(key, load, value) && maxSize > 0) {
+          put(key, value, loadedAt + (value == null ? negativeTtlNanos : ttlNanos));
+        }
+      });
+    }
+    return values;
+  }
+
+  /**
+   * Removes the entry of a key.
+   *
+   * @param key the key
+   */
+  public void invalidate(K key) {
+    synchronized (entries) {
+      remove(key);
+      Load<V> load = loads.get(key);
+      if (load != null) {
+        load.invalidated = true;
+      }
+    }
+  }
+
+  /**
+   * Removes all entries with the given value, for values whose keys are unknown to the caller.
+   *
+   * @param value the value, not null
+   */
+  public void invalidateValue(V value) {
+    synchronized (entries) {
+      Set<K> keys = keysByValue.remove(value);
+      if (keys != null) {
+        keys.forEach(entries::remove);
+      }
+      for (Load<V> load : loads.values()) {
+        if (load.invalidatedValues == null) {
+          load.invalidatedValues = new HashSet<>();
+        }
+        load.invalidatedValues.add(value);
+      }
+    }
+  }
+
+  /**
+   * Removes all entries with a matching key.
+   *
+   * @param filter selects the keys to remove
+   */
+  public void invalidateKeys(Predicate<K> filter) {
+    synchronized (entries) {
+      Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<K, Entry<V>> entry = iterator.next();
+        if (filter.test(entry.getKey())) {
+          iterator.remove();
+          unindex(entry.getKey(), entry.getValue().value());
+        }
+      }
+      loads.forEach((key, load) -> load.invalidated |= filter.test(key));
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+      keysByValue.clear();
+      loads.values().forEach(load -> load.invalidated = true);
+    }
+  }
+
+  private Load<V> startLoad(K key) {
+    Load<V> load = loads.computeIfAbsent(key, k -> new Load<>());
+    load.count++;
+    return load;
+  }
+
+  /**
+   * @return true if neither the key nor the value were invalidated during the load
+   */
+  private boolean finishLoad(K key, Load<V> load, V value) {
+    if (--load.count == 0) {
+      loads.remove(key);
+    }
+    return !load.invalidated
+        && (value == null || load.invalidatedValues == null
+            || !load.invalidatedValues.contains(value));
+  }
+
+  private void put(K key, V value, long expires) {
+    Entry<V> previous = entries.put(key, new Entry<>(value, expires));
+    if (previous != null) {
+      unindex(key, previous.value());
+    }
+    if (value != null && entries.containsKey(key)) {
+      keysByValue.computeIfAbsent(value, v -> new HashSet<>(1)).add(key);
+    }
+  }
+
+  private void remove(K key) {
+    Entry<V> entry = entries.remove(key);
+    if (entry != null) {
+      unindex(key, entry.value());
+    }
+  }
+
+  private void unindex(K key, V value) {
+    if (value == null) {
+      return;
+    }
+    Set<K> keys = keysByValue.get(value);
+    if (keys != null && keys.remove(key) && keys.isEmpty()) {
+      keysByValue.remove(value);
+    }
+  }
+
+  @Override
+  public int getSize() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  @Override
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public double getHitRate() {
+    long hitCount = getHitCount();
+    long requests = hitCount + getMissCount();
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "ResolveCache[size=" + getSize() + ", maxSize=" + maxSize + ", hits=" + getHitCount()
+        + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+  }
+
+  private record Entry<V>(V value, long expires) {
+  }
+
+  /**
+   * The loads of a key in progress, concurrent loads of the same key share their invalidations.
+   */
+  private static final class Load<V> {
+
+    private int count;
+
+    private boolean invalidated;
+
+    private Set<V> invalidatedValues;
+  }
+}
@@ -0,0 +1,141 @@
+package de.gbv.reposis.vzg.service;
+
+import de.gbv.reposis.vzg.VZGModsIdentifiers;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.mycore.common.MCRSessionMgr;
+import org.mycore.common.config.MCRConfiguration2;
+import org.mycore.common.events.MCREvent;
+import org.mycore.common.events.MCREventHandlerBase;
+import org.mycore.datamodel.metadata.MCRDerivate;
+import org.mycore.datamodel.metadata.MCRObject;
+import org.mycore.datamodel.metadata.MCRObjectID;
+import org.mycore.datamodel.niofs.MCRPath;
+
+/**
+ * Keeps the caches of {@link ResolveService} up to date.
+ * <p>
+ * Object events remove the entries of the object from the
+ * {@link ResolveService#getUrnCache() URN cache}: the entries of its URNs, so unknown URNs cached
+ * as such become resolvable, as well as all entries pointing to the object, which covers removed
+ * URNs and deleted objects. The URN lookups query Solr, which indexes the change asynchronously
+ * after the commit, so a lookup in between may cache the old mapping again. The entries are
+ * therefore removed once more {@code VZG.Resolve.Cache.ReindexDelay} seconds after the commit.
+ * <p>
+ * Object and derivate events also remove the main file of the object from the
+ * {@link ResolveService#getContentPathCache() content path cache}, which is taken from Solr as
+ * well. Derivate and file events remove the affected files from the
+ * {@link ResolveService#getContentCache() content cache}.
+ */
+public class ResolveCacheEventHandler extends MCREventHandlerBase {
+
+  private static final long REINDEX_DELAY =
+      MCRConfiguration2.getLong("VZG.Resolve.Cache.ReindexDelay").orElse(10L);
+
+  private static final ScheduledExecutorService SCHEDULER = Executors
+      .newSingleThreadScheduledExecutor(Thread.ofVirtual().name("vzg-resolve-cache").factory());
+
+  @Override
+  protected void handleObjectCreated(MCREvent evt, MCRObject obj) {
+    invalidate(obj);
+  }
+
+  @Override
+  protected void handleObjectUpdated(MCREvent evt, MCRObject obj) {
+    invalidate(obj);
+  }
+
+  @Override
+  protected void handleObjectDeleted(MCREvent evt, MCRObject obj) {
+    invalidate(obj);
+  }
+
+  @Override
+  protected void handleObjectRepaired(MCREvent evt, MCRObject obj) {
+    invalidate(obj);
+  }
+
+  @Override
+  protected void handleDerivateCreated(MCREvent evt, MCRDerivate der) {
+    invalidate(der);
+  }
+
+  @Override
+  protected void handleDerivateUpdated(MCREvent evt, MCRDerivate der) {
+    invalidate(der);
+  }
+
+  @Override
+  protected void handleDerivateDeleted(MCREvent evt, MCRDerivate der) {
+    invalidate(der);
+  }
+
+  @Override
+  protected void handleDerivateRepaired(MCREvent evt, MCRDerivate der) {
+    invalidate(der);
+  }
+
+  @Override
+  protected void handlePathCreated(MCREvent evt, Path path, BasicFileAttributes attrs) {
+    invalidate(path);
+  }
+
+  @Override
+  protected void handlePathUpdated(MCREvent evt, Path path, BasicFileAttributes attrs) {
+    invalidate(path);
+  }
+
+  @Override
+  protected void handlePathDeleted(MCREvent evt, Path path, BasicFileAttributes attrs) {
+    invalidate(path);
+  }
+
+  @Override
+  protected void handlePathRepaired(MCREvent evt, Path path, BasicFileAttributes attrs) {
+    invalidate(path);
+  }
+
+  private void invalidate(MCRObject obj) {
+    MCRObjectID id = obj.getId();
+    List<String> urns =
+        "mods".equals(id.getTypeId()) ? VZGModsIdentifiers.of(obj).urns() : List.of();
+    invalidate(id, urns);
+    invalidateAfterReindex(() -> invalidate(id, urns));
+  }
+
+  private static void invalidate(MCRObjectID id, List<String> urns) {
+    ResolveCache<String, MCRObjectID> cache = ResolveService.getUrnCache();
+    urns.forEach(cache::invalidate);
+    cache.invalidateValue(id);
+    ResolveService.getContentPathCache().invalidate(id.toString());
+  }
+
+  private void invalidate(MCRDerivate der) {
+    // the keys are the MCRPath strings, which start with the derivate ID
+    String prefix = der.getId() + ":";
+    ResolveService.getContentCache().invalidateKeys(key -> key.startsWith(prefix));
+    MCRObjectID owner = der.getOwnerID();
+    if (owner != null) {
+      Runnable invalidateOwner = () -> ResolveService.getContentPathCache()
+          .invalidate(owner.toString());
+      invalidateOwner.run();
+      invalidateAfterReindex(invalidateOwner);
+    }
+  }
+
+  /**
+   * Run an invalidation again {@code VZG.Resolve.Cache.ReindexDelay} seconds after the commit.
+   */
+  private static void invalidateAfterReindex(Runnable invalidation) {
+    MCRSessionMgr.getCurrentSession().onCommit(() -> SCHEDULER
+        .schedule(invalidation, REINDEX_DELAY, TimeUnit.SECONDS));
+  }
+
+  private void invalidate(Path path) {
+    ResolveService.getContentCache().invalidate(MCRPath.ofPath(path).toString());
+  }
+}
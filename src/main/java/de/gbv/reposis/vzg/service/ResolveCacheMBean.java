@@ -0,0 +1,21 @@
+package de.gbv.reposis.vzg.service;
+
+/**
+ * JMX view of a {@link ResolveCache}, used to tune its size.
+ */
+public interface ResolveCacheMBean {
+
+  int getSize();
+
+  int getMaxSize();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  double getHitRate();
+
+  void clear();
+}
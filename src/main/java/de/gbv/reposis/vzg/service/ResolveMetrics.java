@@ -0,0 +1,83 @@
+package de.gbv.reposis.vzg.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.mycore.services.mbeans.MCRJMXBridge;
+
+/**
+ * The timers of the resolver, created on first use and registered with JMX. Names are prefixed
+ * by their layer: {@code endpoint.} for the REST methods, {@code solr.} for Solr requests,
+ * {@code store.} for the metadata and file store and {@code content.} for streamed files.
+ */
+public final class ResolveMetrics {
+
+  public static final String JMX_TYPE = "VZG Resolve Metrics";
+
+  private static final Map<String, ResolveTimer> TIMERS = new ConcurrentHashMap<>();
+
+  private ResolveMetrics() {
+  }
+
+  /**
+   * @param name the name of the timer
+   * @return the timer, created and registered with JMX on first use
+   */
+  public static ResolveTimer timer(String name) {
+    ResolveTimer timer = TIMERS.get(name);
+    if (timer != null) {
+      return timer;
+    }
+    return TIMERS.computeIfAbsent(name, key -> {
+      ResolveTimer newTimer = new ResolveTimer();
+      MCRJMXBridge.register(newTimer, JMX_TYPE, key);
+      return newTimer;
+    });
+  }
+
+  /**
+   * Write all timers and the cache statistics as JSON object.
+   *
+   * @param out the target
+   * @throws IOException if the metrics could not be written
+   */
+  public static void writeJson(Writer out) throws IOException {
+    out.write("{\"timers\":{");
+    boolean first = true;
+    for (Map.Entry<String, ResolveTimer> entry : new TreeMap<>(TIMERS).entrySet()) {
+      ResolveTimer timer = entry.getValue();
+      out.write(first ? "\n" : ",\n");
+      first = false;
+      out.write(String.format(Locale.ROOT,
+          "\"%s\":{\"count\":%d,\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p95Millis\":%.3f,"
+              + "\"p99Millis\":%.3f,\"maxMillis\":%.3f,\"bytes\":%d,\"status\":{",
+          entry.getKey(), timer.getCount(), timer.getMeanMillis(), timer.getP50Millis(),
+          timer.getP95Millis(), timer.getP99Millis(), timer.getMaxMillis(), timer.getBytes()));
+      boolean firstStatus = true;
+      for (Map.Entry<Integer, Long> status : timer.getStatusCountMap().entrySet()) {
+        out.write((firstStatus ? "\"" : ",\"") + status.getKey() + "\":" + status.getValue());
+        firstStatus = false;
+      }
+      out.write("}}");
+    }
+    out.write("\n},\"caches\":{\n");
+    writeCache("URNCache", ResolveService.getUrnCache(), out);
+    out.write(",\n");
+    writeCache("ContentCache", ResolveService.getContentCache(), out);
+    out.write(",\n");
+    writeCache("ContentPathCache", ResolveService.getContentPathCache(), out);
+    out.write("\n}}\n");
+  }
+
+  private static void writeCache(String name, ResolveCache<?, ?> cache, Writer out)
+      throws IOException {
+    out.write(String.format(Locale.ROOT,
+        "\"%s\":{\"size\":%d,\"maxSize\":%d,\"hits\":%d,\"misses\":%d,\"evictions\":%d,"
+            + "\"hitRate\":%.4f}",
+        name, cache.getSize(), cache.getMaxSize(), cache.getHitCount(), cache.getMissCount(),
+        cache.getEvictionCount(), cache.getHitRate()));
+  }
+}
@@ -3,25 +3,39 @@ package de.gbv.reposis.vzg.service;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.HttpSolrClientBase;
 import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.mycore.common.MCRException;
+import org.mycore.common.config.MCRConfiguration2;
 import org.mycore.datamodel.classifications2.MCRCategoryID;
+import org.mycore.datamodel.common.MCRXMLMetadataManager;
 import org.mycore.datamodel.metadata.MCRMetaEnrichedLinkID;
 import org.mycore.datamodel.metadata.MCRMetadataManager;
 import org.mycore.datamodel.metadata.MCRObject;
 import org.mycore.datamodel.metadata.MCRObjectID;
 import org.mycore.datamodel.niofs.MCRPath;
+import org.mycore.services.mbeans.MCRJMXBridge;
 import org.mycore.solr.MCRSolrCore;
+import org.mycore.solr.MCRSolrCoreManager;
 import org.mycore.solr.auth.MCRSolrAuthenticationLevel;
 import org.mycore.solr.auth.MCRSolrAuthenticationManager;
 
@@ -30,6 +44,141 @@ public record ResolveService(MCRSolrCore solrCore,
 
   private static final Logger LOGGER = LogManager.getLogger();
 
+  private static final String CONFIG_PREFIX = "VZG.Resolve.";
+
+  private static final String URN_FIELD = "mods.identifier.type.urn";
+
+  private static final char URN_SEPARATOR = '|';
+
+  private static final String CONTENT_DERIVATE_FIELD = "vzg.content.derivate";
+
+  private static final String CONTENT_MAINDOC_FIELD = "vzg.content.maindoc";
+
+  private static final ResolveCache<String, MCRObjectID> URN_CACHE = createCache("URNCache");
+
+  private static final ResolveCache<String, ContentFileInfo> CONTENT_CACHE =
+      createCache("ContentCache");
+
+  private static final ResolveCache<String, Path> CONTENT_PATH_CACHE =
+      createCache("ContentPathCache");
+
+  // the content files checked against the store within the revalidation interval
+  private static final ResolveCache<String, Boolean> CONTENT_CHECKS = new ResolveCache<>(
+      MCRConfiguration2.getInt(CONFIG_PREFIX + "ContentCache.MaxSize").orElse(10_000),
+      Duration.ofSeconds(
+          MCRConfiguration2.getLong(CONFIG_PREFIX + "ContentCache.RevalidateInterval").orElse(60L)),
+      Duration.ZERO);
+
+  /**
+   * @return the shared instance, which uses the main Solr core
+   */
+  public static ResolveService obtainInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  private static <V> ResolveCache<String, V> createCache(String name) {
+    String prefix = CONFIG_PREFIX + name + ".";
+    ResolveCache<String, V> cache = new ResolveCache<>(
+        MCRConfiguration2.getInt(prefix + "MaxSize").orElse(10_000),
+        Duration.ofSeconds(MCRConfiguration2.getLong(prefix + "TTL").orElse(3600L)),
+        Duration.ofSeconds(MCRConfiguration2.getLong(prefix + "NegativeTTL").orElse(60L)));
+    MCRJMXBridge.register(cache, "VZG Resolve", name);
+    return cache;
+  }
+
+  /**
+   * @return the cache of the URN to object ID lookups, shared by all instances
+   */
+  public static ResolveCache<String, MCRObjectID> getUrnCache() {
+    return URN_CACHE;
+  }
+
+  /**
+   * @return the cache of the content file metadata, keyed by the string of the {@link MCRPath}
+   */
+  public static ResolveCache<String, ContentFileInfo> getContentCache() {
+    return CONTENT_CACHE;
+  }
+
+  /**
+   * @return the cache of the main files of the content derivates, keyed by the object ID
+   */
+  public static ResolveCache<String, Path> getContentPathCache() {
+    return CONTENT_PATH_CACHE;
+  }
+
+  /**
+   * @return the cache of the content files checked against the store, see
+   *     {@link #getContentFileInfo(Path)}
+   */
+  static ResolveCache<String, Boolean> getContentChecks() {
+    return CONTENT_CHECKS;
+  }
+
+  /**
+   * Get the metadata of a content file. It is read from the store once and then served from a
+   * cache, which {@link ResolveCacheEventHandler} keeps up to date on derivate and file changes.
+   * To notice changes without an event, e.g. made outside of MyCoRe, a cached entry is compared
+   * with size and last modification of the file at most once per
+   * {@code VZG.Resolve.ContentCache.RevalidateInterval} seconds. Other requests do not touch the
+   * store.
+   *
+   * @param path the content file
+   * @return the metadata or null if the file does not exist
+   */
+  public ContentFileInfo getContentFileInfo(Path path) {
+    String key = path.toString();
+    ContentFileInfo info = CONTENT_CACHE.get(key, k -> readContentFileInfo(path));
+    if (info == null || CONTENT_CHECKS.get(key, k -> isCurrent(info, path))) {
+      return info;
+    }
+    CONTENT_CHECKS.invalidate(key);
+    CONTENT_CACHE.invalidate(key);
+    return CONTENT_CACHE.get(key, k -> readContentFileInfo(path));
+  }
+
+  private static boolean isCurrent(ContentFileInfo info, Path path) {
+    long start = System.nanoTime();
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      return attributes.size() == info.size()
+          && attributes.lastModifiedTime().toInstant().equals(info.lastModified());
+    } catch (IOException e) {
+      // deleted or unreadable, the reload decides
+      return false;
+    } finally {
+      ResolveMetrics.timer("store.fileTime").record(System.nanoTime() - start);
+    }
+  }
+
+  private static ContentFileInfo readContentFileInfo(Path path) {
+    BasicFileAttributes attributes;
+    String contentType;
+    long start = System.nanoTime();
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      contentType = Files.probeContentType(path);
+    } catch (NoSuchFileException e) {
+      LOGGER.warn("Content derivate path does not exist: {}", path);
+      return null;
+    } catch (IOException e) {
+      throw new MCRException(e);
+    } finally {
+      ResolveMetrics.timer("store.fileInfo").record(System.nanoTime() - start);
+    }
+    return new ContentFileInfo(path.getFileName().toString(),
+        contentType == null ? "application/octet-stream" : contentType, attributes.size(),
+        attributes.lastModifiedTime().toInstant(), getStoredMD5(path));
+  }
+
+  private static String getStoredMD5(Path path) {
+    try {
+      return Files.getAttribute(path, "md5") instanceof String md5 ? md5 : null;
+    } catch (IOException | IllegalArgumentException | UnsupportedOperationException e) {
+      // the store does not keep checksums
+      return null;
+    }
+  }
 
   public MCRObject resolveMyCoreObjectByUrn(String urn) {
     MCRObjectID objectID =resolveMyCoReIdByUrn(urn);
@@ -40,11 +189,72 @@ public record ResolveService(MCRSolrCore solrCore,
 
   }
 
+  /**
+   * Resolve the ID of the object with the given URN. Results, including unknown URNs, are cached
+   * until {@link ResolveCacheEventHandler} sees a change of the object.
+   *
+   * @param urn the URN
+   * @return the object ID or null if no object has the URN
+   */
   public MCRObjectID resolveMyCoReIdByUrn(String urn) {
-    HttpSolrClientBase client = solrCore().getClient();
+    return URN_CACHE.get(urn, this::queryMyCoReIdByUrn);
+  }
+
+  /**
+   * Resolve the IDs of the objects with the given URNs, see {@link #resolveMyCoReIdByUrn(String)}.
+   * URNs missing in the cache are looked up with one terms query per chunk.
+   *
+   * @param urns the URNs
+   * @param chunkSize the maximum number of URNs per Solr request
+   * @return the object ID of every URN, null for unknown URNs
+   */
+  public Map<String, MCRObjectID> resolveMyCoReIdsByUrns(Collection<String> urns, int chunkSize) {
+    return URN_CACHE.getAll(urns, missing -> {
+      List<String> queryUrns = new ArrayList<>(missing);
+      Map<String, MCRObjectID> objectIds = new HashMap<>();
+      for (int i = 0; i < queryUrns.size(); i += chunkSize) {
+        objectIds.putAll(
+            queryMyCoReIdsByUrns(queryUrns.subList(i, Math.min(i + chunkSize, queryUrns.size()))));
+      }
+      return objectIds;
+    });
+  }
+
+  private Map<String, MCRObjectID> queryMyCoReIdsByUrns(List<String> urns) {
+    // the separator is not allowed in URNs, which may contain commas
+    List<String> validUrns = urns.stream().filter(urn -> urn.indexOf(URN_SEPARATOR) < 0).toList();
+    if (validUrns.isEmpty()) {
+      return Map.of();
+    }
+    ModifiableSolrParams solrParams = new ModifiableSolrParams();
+    solrParams.add(CommonParams.Q, "{!terms f=" + URN_FIELD + " separator=" + URN_SEPARATOR + "}"
+        + String.join(String.valueOf(URN_SEPARATOR), validUrns));
+    solrParams.add(CommonParams.FL, "id," + URN_FIELD);
+    solrParams.add(CommonParams.ROWS, Integer.toString(validUrns.size()));
+
+    QueryRequest queryRequest = new QueryRequest(solrParams);
+    authenticationManager().applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
+    try {
+      Set<String> requested = new HashSet<>(validUrns);
+      Map<String, MCRObjectID> objectIds = new HashMap<>();
+      for (SolrDocument result : process(queryRequest, "solr.urnBatch").getResults()) {
+        Collection<Object> resultUrns = result.getFieldValues(URN_FIELD);
+        if (resultUrns == null) {
+          continue;
+        }
+        MCRObjectID objectId = MCRObjectID.getInstance((String) result.getFieldValue("id"));
+        resultUrns.stream().map(String.class::cast).filter(requested::contains)
+            .forEach(urn -> objectIds.putIfAbsent(urn, objectId));
+      }
+      return objectIds;
+    } catch (SolrServerException | IOException e) {
+      throw new MCRException(e);
+    }
+  }
 
+  private MCRObjectID queryMyCoReIdByUrn(String urn) {
     ModifiableSolrParams solrParams = new ModifiableSolrParams();
-    solrParams.add(CommonParams.Q, "mods.identifier.type.urn:\"" + urn + "\"");
+    solrParams.add(CommonParams.Q, URN_FIELD + ":\"" + urn + "\"");
     solrParams.add(CommonParams.FL, "id");
     solrParams.add(CommonParams.ROWS, "1");
 
@@ -52,7 +262,7 @@ public record ResolveService(MCRSolrCore solrCore,
 
     authenticationManager().applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
     try {
-      QueryResponse resp = queryRequest.process(client);
+      QueryResponse resp = process(queryRequest, "solr.urn");
       if (resp.getResults().isEmpty()) {
         return null;
       }
@@ -75,38 +285,106 @@ public record ResolveService(MCRSolrCore solrCore,
     }
   }
 
+  /**
+   * Get the last modification of the stored metadata without loading the object.
+   *
+   * @param mycoreId the object ID
+   * @return the last modification in milliseconds or a negative value if the object does not exist
+   */
+  public long getLastModified(MCRObjectID mycoreId) {
+    long start = System.nanoTime();
+    try {
+      return MCRXMLMetadataManager.obtainInstance().getLastModified(mycoreId);
+    } catch (IOException e) {
+      throw new MCRException(e);
+    } finally {
+      ResolveMetrics.timer("store.lastModified").record(System.nanoTime() - start);
+    }
+  }
+
   public MCRObject resolveMyCoReObjectByMCRObjectId(MCRObjectID mycoreId) {
-    if(!MCRMetadataManager.exists(mycoreId)){
-      return null;
+    long start = System.nanoTime();
+    try {
+      if (!MCRMetadataManager.exists(mycoreId)) {
+        return null;
+      }
+      return MCRMetadataManager.retrieveMCRObject(mycoreId);
+    } finally {
+      ResolveMetrics.timer("store.object").record(System.nanoTime() - start);
     }
-    return MCRMetadataManager.retrieveMCRObject(mycoreId);
   }
 
-  public Path resolveContentFilePathByUrn(String urn) {
-    MCRObject mcrObject = resolveMyCoreObjectByUrn(urn);
-    if (mcrObject == null) {
-      return null;
+  private QueryResponse process(QueryRequest queryRequest, String timerName)
+      throws SolrServerException, IOException {
+    long start = System.nanoTime();
+    try {
+      return queryRequest.process(solrCore().getClient());
+    } finally {
+      ResolveMetrics.timer(timerName).record(System.nanoTime() - start);
     }
+  }
 
-    MCRMetaEnrichedLinkID contentDerivate = findContentDerivate(mcrObject);
+  /**
+   * Resolve the main file of the content derivate of the object with the given URN, through the
+   * cached lookups of {@link #resolveMyCoReIdByUrn(String)} and
+   * {@link #resolveContentFilePathByMCRObjectId(MCRObjectID)}.
+   *
+   * @param urn the URN
+   * @return the file or null if there is no such object or content file, the existence of a file
+   *     from the index is not checked
+   */
+  public Path resolveContentFilePathByUrn(String urn) {
+    MCRObjectID objectID = resolveMyCoReIdByUrn(urn);
+    return objectID == null ? null : resolveContentFilePathByMCRObjectId(objectID);
+  }
 
-    if (contentDerivate == null) {
-      return null;
+  /**
+   * Resolve the main file of the content derivate of an object. The file is taken from the Solr
+   * document of the object, which is only loaded if it is missing in the index or was indexed
+   * without the content fields. Results are cached until {@link ResolveCacheEventHandler} sees a
+   * change of the object or one of its derivates.
+   *
+   * @param mycoreId the object ID
+   * @return the file or null if there is no such object or content file
+   */
+  public Path resolveContentFilePathByMCRObjectId(MCRObjectID mycoreId) {
+    return CONTENT_PATH_CACHE.get(mycoreId.toString(), key -> queryContentFilePath(mycoreId));
+  }
+
+  private Path queryContentFilePath(MCRObjectID mycoreId) {
+    SolrDocument result = queryContentFile("id:\"" + mycoreId + "\"");
+    if (result != null && result.containsKey(CONTENT_DERIVATE_FIELD)) {
+      return getContentFilePath(result);
     }
+    return resolveContentFilePathFromObject(mycoreId);
+  }
 
-    MCRPath contentDerivatePath = MCRPath.getPath(contentDerivate.getXLinkHref(),
-        contentDerivate.getMainDoc());
+  private SolrDocument queryContentFile(String query) {
+    ModifiableSolrParams solrParams = new ModifiableSolrParams();
+    solrParams.add(CommonParams.Q, query);
+    solrParams.add(CommonParams.FL,
+        "id," + CONTENT_DERIVATE_FIELD + "," + CONTENT_MAINDOC_FIELD);
+    solrParams.add(CommonParams.ROWS, "1");
 
-    if (!Files.exists(contentDerivatePath)) {
-      LOGGER.warn("Content derivate path does not exist: {}", contentDerivatePath);
-      return null;
+    QueryRequest queryRequest = new QueryRequest(solrParams);
+    authenticationManager().applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
+    try {
+      SolrDocumentList results = process(queryRequest, "solr.content").getResults();
+      return results.isEmpty() ? null : results.getFirst();
+    } catch (SolrServerException | IOException e) {
+      throw new MCRException(e);
     }
-
-    return contentDerivatePath;
   }
 
+  private static Path getContentFilePath(SolrDocument result) {
+    String mainDoc = (String) result.getFieldValue(CONTENT_MAINDOC_FIELD);
+    if (mainDoc == null) {
+      return null;
+    }
+    return MCRPath.getPath((String) result.getFieldValue(CONTENT_DERIVATE_FIELD), mainDoc);
+  }
 
-  public Path resolveContentFilePathByMCRObjectId(MCRObjectID mycoreId) {
+  private Path resolveContentFilePathFromObject(MCRObjectID mycoreId) {
     MCRObject mcrObject = resolveMyCoReObjectByMCRObjectId(mycoreId);
     if (mcrObject == null) {
       return null;
@@ -114,7 +392,7 @@ public record ResolveService(MCRSolrCore solrCore,
 
     MCRMetaEnrichedLinkID contentDerivate = findContentDerivate(mcrObject);
 
-    if (contentDerivate == null) {
+    if (contentDerivate == null || contentDerivate.getMainDoc() == null) {
       return null;
     }
 
@@ -129,7 +407,6 @@ public record ResolveService(MCRSolrCore solrCore,
     return contentDerivatePath;
   }
 
-
   private MCRMetaEnrichedLinkID findContentDerivate(MCRObject mcrObject) {
     MCRCategoryID contentDerivateType = MCRCategoryID.ofString("derivate_types:content");
     return mcrObject.getStructure().getDerivates().stream()
@@ -139,4 +416,11 @@ public record ResolveService(MCRSolrCore solrCore,
         .findFirst()
         .orElse(null);
   }
+
+  private static final class InstanceHolder {
+
+    // the Solr client and the authentication manager are thread-safe
+    private static final ResolveService INSTANCE = new ResolveService(
+        MCRSolrCoreManager.getMainSolrCore(), MCRSolrAuthenticationManager.obtainInstance());
+  }
 }
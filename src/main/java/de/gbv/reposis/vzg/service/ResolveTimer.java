@@ -0,0 +1,158 @@
+package de.gbv.reposis.vzg.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts and times an operation of the resolver. Durations are kept in a histogram with four
+ * buckets per power of two microseconds, so percentiles are accurate to about 12% and recording
+ * is a few atomic increments without allocation. Optionally counts response status codes and
+ * transferred bytes.
+ */
+public class ResolveTimer implements ResolveTimerMBean {
+
+  private static final int SUB_BUCKETS = 4;
+
+  // covers up to 2^40 microseconds, about twelve days
+  private static final int BUCKETS = SUB_BUCKETS * 40;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder totalNanos = new LongAdder();
+
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  private final LongAdder bytes = new LongAdder();
+
+  private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+  /**
+   * @param nanos the duration of the operation in nanoseconds
+   */
+  public void record(long nanos) {
+    long duration = Math.max(0, nanos);
+    buckets.incrementAndGet(getBucket(TimeUnit.NANOSECONDS.toMicros(duration)));
+    count.increment();
+    totalNanos.add(duration);
+    maxNanos.accumulate(duration);
+  }
+
+  /**
+   * @param nanos the duration of the request in nanoseconds
+   * @param status the status code of the response
+   */
+  public void record(long nanos, int status) {
+    record(nanos);
+    statusCounts.computeIfAbsent(status, code -> new LongAdder()).increment();
+  }
+
+  /**
+   * @param transferred the number of bytes transferred by the operation
+   */
+  public void addBytes(long transferred) {
+    bytes.add(transferred);
+  }
+
+  static int getBucket(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    int subBucket = (int) ((micros >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+    return Math.min(BUCKETS - 1, SUB_BUCKETS * (exponent - 1) + subBucket);
+  }
+
+  /**
+   * @return the middle of the bucket in microseconds
+   */
+  static double getBucketValue(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket + 0.5;
+    }
+    int exponent = bucket / SUB_BUCKETS + 1;
+    long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+    return lower + (1L << (exponent - 2)) / 2.0;
+  }
+
+  /**
+   * @param quantile the quantile between 0 and 1
+   * @return the approximated duration in milliseconds, 0 if nothing was recorded
+   */
+  public double getPercentileMillis(double quantile) {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank && snapshot[i] > 0) {
+        return Math.min(getBucketValue(i) / 1000, getMaxMillis());
+      }
+    }
+    return getMaxMillis();
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public double getMeanMillis() {
+    long n = count.sum();
+    return n == 0 ? 0 : totalNanos.sum() / (n * 1_000_000d);
+  }
+
+  @Override
+  public double getP50Millis() {
+    return getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getP95Millis() {
+    return getPercentileMillis(0.95);
+  }
+
+  @Override
+  public double getP99Millis() {
+    return getPercentileMillis(0.99);
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return maxNanos.get() / 1_000_000d;
+  }
+
+  @Override
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  /**
+   * @return the number of responses per status code, sorted by status code
+   */
+  public Map<Integer, Long> getStatusCountMap() {
+    return statusCounts.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+        entry -> entry.getValue().sum(), Long::sum, TreeMap::new));
+  }
+
+  @Override
+  public String getStatusCounts() {
+    return getStatusCountMap().toString();
+  }
+}
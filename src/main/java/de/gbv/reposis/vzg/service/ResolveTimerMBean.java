@@ -0,0 +1,23 @@
+package de.gbv.reposis.vzg.service;
+
+/**
+ * JMX view of a {@link ResolveTimer}.
+ */
+public interface ResolveTimerMBean {
+
+  long getCount();
+
+  double getMeanMillis();
+
+  double getP50Millis();
+
+  double getP95Millis();
+
+  double getP99Millis();
+
+  double getMaxMillis();
+
+  long getBytes();
+
+  String getStatusCounts();
+}
@@ -1,16 +1,15 @@
 package de.gbv.reposis.vzg.servlet;
 
 
+import de.gbv.reposis.vzg.VZGDuplicateSearch;
+import de.gbv.reposis.vzg.VZGDuplicateSummary;
+import de.gbv.reposis.vzg.VZGPendingImportStore;
+import de.gbv.reposis.vzg.VZGPicaXMLCache;
+import de.gbv.reposis.vzg.VZGUnAPIResolver;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 import javax.xml.transform.TransformerException;
-import org.apache.solr.client.solrj.SolrClient;
-import org.apache.solr.client.solrj.request.QueryRequest;
-import org.apache.solr.common.params.CommonParams;
-import org.apache.solr.common.params.ModifiableSolrParams;
-import org.jdom2.Document;
 import org.jdom2.Element;
 import org.mycore.access.MCRAccessManager;
 import org.mycore.common.MCRException;
@@ -21,21 +20,16 @@ import org.mycore.common.xml.MCRLayoutService;
 import org.mycore.common.xml.MCRURIResolver;
 import org.mycore.datamodel.metadata.MCRMetadataManager;
 import org.mycore.datamodel.metadata.MCRObject;
-import org.mycore.datamodel.metadata.MCRObjectID;
 import org.mycore.frontend.MCRFrontendUtil;
 import org.mycore.frontend.servlets.MCRServlet;
 import org.mycore.frontend.servlets.MCRServletJob;
 import org.mycore.mods.MCRMODSWrapper;
-import org.mycore.solr.MCRSolrCoreManager;
-import org.mycore.solr.MCRSolrUtils;
-import org.mycore.solr.auth.MCRSolrAuthenticationLevel;
-import org.mycore.solr.auth.MCRSolrAuthenticationManager;
 import org.xml.sax.SAXException;
 
 public class VZGAutoImportPPNServlet extends MCRServlet {
 
 
-  public static final String PPN_IMPORT_OBJECT_SESSION_KEY = "PPN_IMPORT_OBJECT";
+  public static final String PPN_IMPORT_TOKEN_SESSION_KEY = "PPN_IMPORT_TOKEN";
 
   @Override
   protected void doGetPost(MCRServletJob job) throws Exception {
@@ -74,18 +68,25 @@ public class VZGAutoImportPPNServlet extends MCRServlet {
       resp.sendError(400, "Missing 'ppn' parameter");
       return;
     }
+    ppn = ppn.trim();
+    if (!VZGPicaXMLCache.isValidPPN(ppn)) {
+      resp.sendError(400, "Invalid 'ppn' parameter");
+      return;
+    }
 
-    clearSessionObject();
+    clearPendingImport();
 
-    Element mods = MCRURIResolver.obtainInstance().resolve(
-        "xslTransform:pica2mods:https://unapi.k10plus.de/?id=gvk:ppn:" + ppn + "&format=picaxml");
+    // the PICA-XML is cached, editors often enter the same PPN again
+    Element mods = MCRURIResolver.obtainInstance()
+        .resolve("xslTransform:pica2mods:" + VZGUnAPIResolver.SCHEME + ppn);
 
     String nameOfProject = MCRConfiguration2.getStringOrThrow("MCR.NameOfProject");
     MCRObject mcrObject = MCRMODSWrapper.wrapMODSDocument(mods, nameOfProject);
     MCRMODSWrapper modsWrapper = new MCRMODSWrapper(mcrObject);
-    storeSessionObject(mcrObject);
+    storePendingImport(modsWrapper.getMODS());
 
-    List<MCRObjectID> possibleDuplicatesId = searchForDuplicates(modsWrapper, ppn);
+    List<VZGDuplicateSummary> possibleDuplicates =
+        new VZGDuplicateSearch().search(modsWrapper, ppn);
 
     Element confirmImport = new Element("confirmImport");
     confirmImport.setAttribute("ppn", ppn);
@@ -95,67 +96,41 @@ public class VZGAutoImportPPNServlet extends MCRServlet {
     Element clonedMods = mcrObject.createXML().detachRootElement();
     importMods.addContent(clonedMods);
 
+    // only the Solr summaries, the objects are opened from the confirmation page on demand
     Element duplicates = new Element("possibleDuplicates");
-
-    possibleDuplicatesId.stream().map(MCRMetadataManager::retrieveMCRObject)
-        .map(MCRObject::createXML).map(Document::detachRootElement).forEach(duplicates::addContent);
+    possibleDuplicates.stream().map(VZGDuplicateSummary::toXML).forEach(duplicates::addContent);
 
     confirmImport.addContent(duplicates);
 
     MCRLayoutService.obtainInstance().doLayout(req, resp, new MCRJDOMContent(confirmImport));
   }
 
-  private List<MCRObjectID> searchForDuplicates(MCRMODSWrapper modsWrapper, String ppn) {
-    // extract title
-    List<String> titles = modsWrapper.getElements("mods:titleInfo/mods:title").stream()
-        .map(Element::getTextNormalize).toList();
-
-    List<String> queryParts = titles.stream().map(MCRSolrUtils::escapeSearchValue)
-        .map(t -> "mods.title:\"" + t + "\"").collect(Collectors.toList());
-
-    queryParts.add("mods.identifier:" + MCRSolrUtils.escapeSearchValue(
-        "https://uri.gbv.de/document/gvk:ppn:" + ppn));
-
-    String solrQueryParam = String.join(" OR ", queryParts);
-
-    SolrClient client = MCRSolrCoreManager.getMainSolrClient();
-
-    ModifiableSolrParams params = new ModifiableSolrParams();
-    params.add(CommonParams.Q, solrQueryParam);
-    params.add(CommonParams.FL, "id");
-    params.add(CommonParams.ROWS, "10");
-    params.add(CommonParams.FQ, "objectType:mods");
-
-    QueryRequest queryRequest = new QueryRequest(params);
-
-    MCRSolrAuthenticationManager.obtainInstance()
-        .applyAuthentication(queryRequest, MCRSolrAuthenticationLevel.SEARCH);
-
-    try {
-      var response = queryRequest.process(client);
-      return response.getResults().stream().map(
-              doco -> Optional.ofNullable(doco).map(doc -> doc.getFieldValue("id"))
-                  .filter(String.class::isInstance).map(String.class::cast)).filter(Optional::isPresent)
-          .map(Optional::get).filter(MCRObjectID::isValid).map(MCRObjectID::getInstance).toList();
-    } catch (Exception e) {
-      throw new RuntimeException("Error querying Solr for duplicates", e);
-    }
-  }
-
-  private void clearSessionObject() {
-    var sessionObj = (MCRObject) MCRSessionMgr.getCurrentSession()
-        .get(PPN_IMPORT_OBJECT_SESSION_KEY);
-    if (sessionObj != null) {
-      MCRSessionMgr.getCurrentSession().deleteObject(PPN_IMPORT_OBJECT_SESSION_KEY);
+  private void clearPendingImport() {
+    var token = (String) MCRSessionMgr.getCurrentSession().get(PPN_IMPORT_TOKEN_SESSION_KEY);
+    if (token != null) {
+      StoreHolder.STORE.remove(token);
+      MCRSessionMgr.getCurrentSession().deleteObject(PPN_IMPORT_TOKEN_SESSION_KEY);
     }
   }
 
-  private void storeSessionObject(MCRObject mcrObject) {
-    MCRSessionMgr.getCurrentSession().put(PPN_IMPORT_OBJECT_SESSION_KEY, mcrObject);
+  private void storePendingImport(Element mods) {
+    // only the token is kept in the session, the compressed MODS stays in the bounded store
+    String token = StoreHolder.STORE.put(mods);
+    MCRSessionMgr.getCurrentSession().put(PPN_IMPORT_TOKEN_SESSION_KEY, token);
   }
 
-  private MCRObject getSessionObject() {
-    return (MCRObject) MCRSessionMgr.getCurrentSession().get(PPN_IMPORT_OBJECT_SESSION_KEY);
+  private MCRObject takePendingImport() {
+    var token = (String) MCRSessionMgr.getCurrentSession().get(PPN_IMPORT_TOKEN_SESSION_KEY);
+    if (token == null) {
+      return null;
+    }
+    MCRSessionMgr.getCurrentSession().deleteObject(PPN_IMPORT_TOKEN_SESSION_KEY);
+    Element mods = StoreHolder.STORE.take(token);
+    if (mods == null) {
+      return null;
+    }
+    String nameOfProject = MCRConfiguration2.getStringOrThrow("MCR.NameOfProject");
+    return MCRMODSWrapper.wrapMODSDocument(mods, nameOfProject);
   }
 
 
@@ -163,10 +138,10 @@ public class VZGAutoImportPPNServlet extends MCRServlet {
     var req = job.getRequest();
     var resp = job.getResponse();
 
-    var obj = getSessionObject();
+    var obj = takePendingImport();
     if (obj == null) {
       try {
-        resp.sendError(400, "No import object in session. Please start import again.");
+        resp.sendError(400, "No import object in session or it expired. Please start again.");
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -186,5 +161,12 @@ public class VZGAutoImportPPNServlet extends MCRServlet {
     }
   }
 
+  private static final class StoreHolder {
 
+    private static final String PREFIX = "VZG.PPNImport.Pending.";
+
+    private static final VZGPendingImportStore STORE = new VZGPendingImportStore(
+        MCRConfiguration2.getInt(PREFIX + "MaxSize").orElse(1000),
+        Duration.ofSeconds(MCRConfiguration2.getLong(PREFIX + "TTL").orElse(3600L)));
+  }
 }
@@ -4,14 +4,16 @@
   xmlns:mods="http://www.loc.gov/mods/v3"
   xmlns:xlink="http://www.w3.org/1999/xlink"
   xmlns:i18n="xalan://org.mycore.services.i18n.MCRTranslation"
-  xmlns:iview2="xalan://org.mycore.iview2.services.MCRIView2Tools"
   xmlns:str="http://exslt.org/strings"
-  exclude-result-prefixes="xlink mods i18n iview2 str">
+  exclude-result-prefixes="xlink mods i18n str">
 
   <xsl:include href="MyCoReLayout.xsl" />
 
   <xsl:variable name="PageTitle" select="i18n:translate('vzg.ppn.import.heading')" />
 
+  <!-- extensions of main files with an IIIF thumbnail: PDF and the image types of iview2 -->
+  <xsl:variable name="thumbnailExtensions" select="' pdf jpg jpeg png gif bmp tif tiff jp2 '" />
+
   <xsl:template match="/confirmImport">
     <div class="container my-2">
       <div class="row">
@@ -103,8 +105,8 @@
         </div>
       </div>
 
-      <!-- Mögliche Duplikate -->
-      <xsl:if test="possibleDuplicates//mods:mods">
+      <!-- Mögliche Duplikate, Zusammenfassungen aus Solr (VZGDuplicateSummary) -->
+      <xsl:if test="possibleDuplicates/duplicate">
         <div class="row mt-2">
           <div class="col-12">
             <h2>
@@ -117,8 +119,7 @@
             <div class="result_body">
               <div class="result_list">
                 <div id="hit_list">
-                  <xsl:for-each select="possibleDuplicates/mycoreobject">
-                    <xsl:variable name="objID" select="@ID" />
+                  <xsl:for-each select="possibleDuplicates/duplicate">
                     <xsl:variable name="hitItemClass">
                       <xsl:choose>
                         <xsl:when test="position() mod 2 = 1">odd</xsl:when>
@@ -140,11 +141,7 @@
                       <!-- hit body -->
                       <div class="row hit_item_body">
                         <div class="col-12">
-                          <xsl:for-each select=".//mods:mods">
-                            <xsl:call-template name="showMiniDescription">
-                              <xsl:with-param name="objectID" select="$objID" />
-                            </xsl:call-template>
-                          </xsl:for-each>
+                          <xsl:apply-templates select="." />
                         </div>
                       </div>
                     </div>
@@ -178,177 +175,138 @@
     </div>
   </xsl:template>
 
-  <xsl:template name="showMiniDescription">
-    <xsl:param name="objectID" select="''" />
-
-    <!-- document preview / icon (only for duplicates with objectID) -->
-    <xsl:if test="string-length($objectID) &gt; 0">
-      <div class="hit_download_box">
-        <!-- find content derivates -->
-        <xsl:variable name="contentDerivates" select="ancestor::mycoreobject/structure/derobjects/derobject[classification[@classid='derivate_types'][@categid='content']]" />
-        <xsl:variable name="derivateID" select="$contentDerivates[1]/@xlink:href" />
-        <xsl:variable name="maindoc" select="$contentDerivates[1]/maindoc" />
+  <!-- the full object is only loaded when the editor opens it -->
+  <xsl:template match="duplicate">
+    <xsl:variable name="objectID" select="@id" />
+    <xsl:variable name="derivateID" select="content/@derivate" />
+    <xsl:variable name="maindoc" select="content/@maindoc" />
 
-        <!-- check if maindoc is PDF -->
-        <xsl:variable name="isPDF" select="translate(str:tokenize($maindoc,'.')[position()=last()],'PDF','pdf') = 'pdf'" />
+    <!-- document preview / icon -->
+    <div class="hit_download_box">
+      <!-- decided by the indexed main file, the derivates are not read for every duplicate -->
+      <xsl:variable name="extension" select="translate(str:tokenize($maindoc,'.')[position()=last()],
+        'ABCDEFGHIJKLMNOPQRSTUVWXYZ', 'abcdefghijklmnopqrstuvwxyz')" />
+      <xsl:variable name="hasThumbnail"
+        select="contains($maindoc, '.') and contains($thumbnailExtensions, concat(' ', $extension, ' '))" />
 
-        <!-- check for supported main file -->
-        <xsl:variable name="supportedFile">
-          <xsl:if test="string-length($derivateID) &gt; 0">
-            <xsl:value-of select="iview2:getSupportedMainFile(string($derivateID))" />
-          </xsl:if>
-        </xsl:variable>
-
-        <xsl:variable name="imageElement">
-          <xsl:choose>
-            <!-- when derivate has PDF or supported iview file, use IIIF thumbnail -->
-            <xsl:when test="($isPDF and string-length($maindoc) &gt; 0) or string-length($supportedFile) &gt; 0">
-              <div class="hit_icon">
-                <xsl:attribute name="style">
-                  <xsl:variable name="apos">'</xsl:variable>
-                  <xsl:value-of select="concat('background-image: url(', $apos, $WebApplicationBaseURL, 'api/iiif/image/v2/thumbnail/', $objectID, '/full/!300,300/0/default.jpg', $apos, ')')"/>
-                </xsl:attribute>
-              </div>
-            </xsl:when>
-            <!-- when there is no content derivate, use disabled icon -->
-            <xsl:when test="string-length($derivateID) = 0">
-              <img class="hit_icon" src="{$WebApplicationBaseURL}images/icons/icon_common_disabled.png"/>
-            </xsl:when>
-            <!-- otherwise use default icon -->
-            <xsl:otherwise>
-              <img class="hit_icon" src="{$WebApplicationBaseURL}images/icons/icon_common.png"/>
-            </xsl:otherwise>
-          </xsl:choose>
-        </xsl:variable>
+      <xsl:variable name="imageElement">
+        <xsl:choose>
+          <!-- when the main file is a PDF or an image supported by iview, use IIIF thumbnail -->
+          <xsl:when test="string-length($derivateID) &gt; 0 and $hasThumbnail">
+            <div class="hit_icon">
+              <xsl:attribute name="style">
+                <xsl:variable name="apos">'</xsl:variable>
+                <xsl:value-of select="concat('background-image: url(', $apos, $WebApplicationBaseURL, 'api/iiif/image/v2/thumbnail/', $objectID, '/full/!300,300/0/default.jpg', $apos, ')')"/>
+              </xsl:attribute>
+            </div>
+          </xsl:when>
+          <!-- when there is no content derivate, use disabled icon -->
+          <xsl:when test="string-length($derivateID) = 0">
+            <img class="hit_icon" src="{$WebApplicationBaseURL}images/icons/icon_common_disabled.png"/>
+          </xsl:when>
+          <!-- otherwise use default icon -->
+          <xsl:otherwise>
+            <img class="hit_icon" src="{$WebApplicationBaseURL}images/icons/icon_common.png"/>
+          </xsl:otherwise>
+        </xsl:choose>
+      </xsl:variable>
 
-        <a class="hit_option hit_download" href="{$WebApplicationBaseURL}receive/{$objectID}" title="{mods:genre}">
-          <xsl:copy-of select="$imageElement" />
-        </a>
-      </div>
-    </xsl:if>
+      <a class="hit_option hit_download" href="{$WebApplicationBaseURL}receive/{$objectID}" title="{genre}">
+        <xsl:copy-of select="$imageElement" />
+      </a>
+    </div>
 
     <!-- hit type / genre -->
     <div class="hit_tnd_container">
       <div class="hit_tnd_content mir-badge-container">
-        <!-- OA Badge -->
+        <!-- OA Badge, content derivate exists -->
         <xsl:choose>
-          <xsl:when test="string-length($objectID) = 0">
-            <span class="badge mir-badge-oa-false" data-bs-toggle="tooltip" title="{i18n:translate('mir.response.openAccess.false')}">
-              <i class="fas fa-lock"></i>
+          <xsl:when test="content">
+            <span class="badge mir-badge-oa-true" data-bs-toggle="tooltip" title="{i18n:translate('mir.response.openAccess.true')}">
+              <i class="fas fa-lock-open"></i>
             </span>
           </xsl:when>
           <xsl:otherwise>
-            <!-- Check if derivate exists with OA classification -->
-            <xsl:variable name="hasOA" select="ancestor::mycoreobject/structure/derobjects/derobject[classification[@classid='derivate_types'][@categid='content']]" />
-            <xsl:choose>
-              <xsl:when test="$hasOA">
-                <span class="badge mir-badge-oa-true" data-bs-toggle="tooltip" title="{i18n:translate('mir.response.openAccess.true')}">
-                  <i class="fas fa-lock-open"></i>
-                </span>
-              </xsl:when>
-              <xsl:otherwise>
-                <span class="badge mir-badge-oa-false" data-bs-toggle="tooltip" title="{i18n:translate('mir.response.openAccess.false')}">
-                  <i class="fas fa-lock"></i>
-                </span>
-              </xsl:otherwise>
-            </xsl:choose>
+            <span class="badge mir-badge-oa-false" data-bs-toggle="tooltip" title="{i18n:translate('mir.response.openAccess.false')}">
+              <i class="fas fa-lock"></i>
+            </span>
           </xsl:otherwise>
         </xsl:choose>
 
         <!-- Genre Badge -->
-        <xsl:if test="mods:genre">
-          <xsl:variable name="genre" select="mods:genre" />
-          <span class="badge mir-badge-genre-{$genre}" data-bs-toggle="tooltip" title="{i18n:translate('mir.help.genre')}">
-            <xsl:value-of select="$genre" />
+        <xsl:if test="genre">
+          <span class="badge mir-badge-genre-{genre}" data-bs-toggle="tooltip" title="{i18n:translate('mir.help.genre')}">
+            <xsl:value-of select="genre" />
           </span>
         </xsl:if>
 
         <!-- Date Badge -->
-        <xsl:if test="mods:originInfo/mods:dateIssued">
+        <xsl:if test="year">
           <span class="badge mir-badge-date" data-bs-toggle="tooltip" title="{i18n:translate('mir.date.published')}">
-            <xsl:value-of select="mods:originInfo/mods:dateIssued" />
+            <xsl:value-of select="year" />
+          </span>
+        </xsl:if>
+
+        <!-- State Badge -->
+        <xsl:if test="state">
+          <span class="badge mir-badge-state-{state}">
+            <xsl:value-of select="state" />
           </span>
         </xsl:if>
       </div>
     </div>
 
-    <!-- hit headline / title -->
+    <!-- hit headline / title, the object ID for documents indexed without summary -->
     <h3 class="hit_title">
       <xsl:variable name="titleText">
         <xsl:choose>
-          <xsl:when test="mods:titleInfo/mods:nonSort">
-            <xsl:value-of select="mods:titleInfo/mods:nonSort" />
-            <xsl:text> </xsl:text>
+          <xsl:when test="title">
+            <xsl:value-of select="title" />
           </xsl:when>
+          <xsl:otherwise>
+            <xsl:value-of select="$objectID" />
+          </xsl:otherwise>
         </xsl:choose>
-        <xsl:value-of select="mods:titleInfo/mods:title" />
-        <xsl:if test="mods:titleInfo/mods:subTitle">
-          <xsl:text> : </xsl:text>
-          <xsl:value-of select="mods:titleInfo/mods:subTitle" />
-        </xsl:if>
       </xsl:variable>
-
-      <xsl:choose>
-        <xsl:when test="string-length($objectID) &gt; 0">
-          <a href="{$WebApplicationBaseURL}receive/{$objectID}" title="{$titleText}">
-            <xsl:value-of select="$titleText" />
-          </a>
-        </xsl:when>
-        <xsl:otherwise>
-          <xsl:value-of select="$titleText" />
-        </xsl:otherwise>
-      </xsl:choose>
+      <a href="{$WebApplicationBaseURL}receive/{$objectID}" title="{$titleText}">
+        <xsl:value-of select="$titleText" />
+      </a>
     </h3>
 
     <!-- hit author -->
-    <xsl:if test="mods:name[@type='personal']">
+    <xsl:if test="author">
       <div class="hit_author">
-        <xsl:for-each select="mods:name[@type='personal'][position() &lt;= 3]">
+        <xsl:for-each select="author[position() &lt;= 3]">
           <xsl:if test="position() > 1">
             <xsl:text> / </xsl:text>
           </xsl:if>
-          <xsl:choose>
-            <xsl:when test="mods:namePart[@type='family'] and mods:namePart[@type='given']">
-              <xsl:value-of select="mods:namePart[@type='family']" />
-              <xsl:text>, </xsl:text>
-              <xsl:value-of select="mods:namePart[@type='given']" />
-            </xsl:when>
-            <xsl:when test="mods:displayForm">
-              <xsl:value-of select="mods:displayForm" />
-            </xsl:when>
-            <xsl:otherwise>
-              <xsl:value-of select="mods:namePart" />
-            </xsl:otherwise>
-          </xsl:choose>
+          <xsl:value-of select="." />
         </xsl:for-each>
-        <xsl:if test="count(mods:name[@type='personal']) > 3">
+        <xsl:if test="count(author) > 3">
           <xsl:text> / et.al.</xsl:text>
         </xsl:if>
       </div>
     </xsl:if>
 
-    <!-- hit abstract -->
-    <xsl:if test="mods:abstract">
-      <div class="hit_abstract">
-        <xsl:value-of select="mods:abstract[1]" />
-      </div>
-    </xsl:if>
-
     <!-- hit publisher -->
-    <xsl:if test="mods:originInfo/mods:publisher">
+    <xsl:if test="publisher">
       <div class="hit_pub_name">
-        <xsl:variable name="date" select="mods:originInfo/mods:dateIssued" />
-        <xsl:variable name="place" select="mods:originInfo/mods:place/mods:placeTerm" />
-
-        <xsl:if test="string-length($place) &gt; 0">
-          <xsl:value-of select="concat($place, ': ')" />
+        <xsl:value-of select="publisher" />
+        <xsl:if test="year">
+          <xsl:value-of select="concat(', ', year)" />
         </xsl:if>
+      </div>
+    </xsl:if>
 
-        <xsl:value-of select="mods:originInfo/mods:publisher" />
-
-        <xsl:if test="string-length($date) &gt; 0">
-          <xsl:value-of select="concat(', ', $date)" />
-        </xsl:if>
+    <!-- hit identifiers -->
+    <xsl:if test="identifier">
+      <div class="hit_identifier text-muted">
+        <xsl:for-each select="identifier">
+          <xsl:if test="position() > 1">
+            <xsl:text> | </xsl:text>
+          </xsl:if>
+          <xsl:value-of select="concat(@type, ': ', .)" />
+        </xsl:for-each>
       </div>
     </xsl:if>
   </xsl:template>
@@ -3,7 +3,9 @@
   xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
   xmlns:mods="http://www.loc.gov/mods/v3"
   xmlns:xlink="http://www.w3.org/1999/xlink"
-  exclude-result-prefixes="xlink mods">
+  xmlns:str="http://exslt.org/strings"
+  xmlns:dupkeys="xalan://de.gbv.reposis.vzg.VZGDuplicateKeys"
+  exclude-result-prefixes="xlink mods str dupkeys">
 
   <xsl:import href="xslImport:solr-document:vzg-solr.xsl" />
 
@@ -12,11 +14,112 @@
   <xsl:template match="mycoreobject[./metadata/def.modsContainer/modsContainer/mods:mods]">
     <xsl:apply-imports />
 
-    <xsl:for-each select="metadata/def.modsContainer/modsContainer/mods:mods/mods:identifier[@type]">
+    <xsl:variable name="mods" select="metadata/def.modsContainer/modsContainer/mods:mods" />
+
+    <xsl:for-each select="$mods/mods:identifier[@type]">
       <field name="mods.identifier.type.{@type}">
         <xsl:value-of select="text()" />
       </field>
     </xsl:for-each>
+
+    <!-- fields for the PICA+ patch cronjob (SolrFastPath), same rules as VZGPublishPicaPatchCronJob -->
+    <xsl:variable name="ppnURI" select="normalize-space($mods/mods:identifier[@type='uri'][1])" />
+    <xsl:if test="contains($ppnURI, 'gvk:ppn:')">
+      <field name="vzg.ppn">
+        <xsl:value-of select="substring-after($ppnURI, 'gvk:ppn:')" />
+      </field>
+    </xsl:if>
+    <xsl:for-each select="$mods/mods:identifier[@type='urn'][string-length(normalize-space()) &gt; 0][1]">
+      <field name="vzg.urn.first">
+        <xsl:value-of select="normalize-space()" />
+      </field>
+    </xsl:for-each>
+    <xsl:for-each select="structure/derobjects/derobject[string-length(normalize-space(maindoc)) &gt; 0]/classification">
+      <field name="vzg.derivate.maindoc.category">
+        <xsl:value-of select="concat(@classid, ':', @categid)" />
+      </field>
+    </xsl:for-each>
+
+    <!-- content file of rsc/resolve/.../content, same rules as ResolveService -->
+    <xsl:for-each select="structure/derobjects/derobject[classification[@classid='derivate_types' and @categid='content']][1]">
+      <field name="vzg.content.derivate">
+        <xsl:value-of select="@xlink:href" />
+      </field>
+      <xsl:if test="string-length(normalize-space(maindoc)) &gt; 0">
+        <field name="vzg.content.maindoc">
+          <xsl:value-of select="maindoc" />
+        </field>
+      </xsl:if>
+    </xsl:for-each>
+
+    <!-- keys of the duplicate search of the PPN import, same rules as VZGDuplicateKeys.getKeys -->
+    <xsl:for-each select="$mods/mods:titleInfo[mods:title][position() &lt;= 3]">
+      <xsl:for-each select="str:tokenize(dupkeys:getTitleKeys(string(mods:title), string(mods:subTitle)), ' ')">
+        <field name="vzg.duplicate.key">
+          <xsl:value-of select="." />
+        </field>
+      </xsl:for-each>
+    </xsl:for-each>
+    <xsl:for-each select="$mods/mods:identifier">
+      <xsl:variable name="duplicateKey" select="dupkeys:getIdentifierKey(string(@type), string(.))" />
+      <xsl:if test="string-length($duplicateKey) &gt; 0">
+        <field name="vzg.duplicate.key">
+          <xsl:value-of select="$duplicateKey" />
+        </field>
+      </xsl:if>
+    </xsl:for-each>
+
+    <!-- display fields of possible duplicates in the PPN import, see VZGDuplicateSummary -->
+    <xsl:for-each select="$mods/mods:titleInfo[not(@type)][mods:title][1]">
+      <field name="vzg.summary.title">
+        <xsl:if test="mods:nonSort">
+          <xsl:value-of select="concat(normalize-space(mods:nonSort), ' ')" />
+        </xsl:if>
+        <xsl:value-of select="normalize-space(mods:title)" />
+        <xsl:if test="mods:subTitle">
+          <xsl:value-of select="concat(' : ', normalize-space(mods:subTitle))" />
+        </xsl:if>
+      </field>
+    </xsl:for-each>
+    <xsl:for-each select="$mods/mods:name[@type='personal']">
+      <field name="vzg.summary.author">
+        <xsl:choose>
+          <xsl:when test="mods:namePart[@type='family'] and mods:namePart[@type='given']">
+            <xsl:value-of select="concat(mods:namePart[@type='family'], ', ', mods:namePart[@type='given'])" />
+          </xsl:when>
+          <xsl:when test="mods:displayForm">
+            <xsl:value-of select="mods:displayForm" />
+          </xsl:when>
+          <xsl:otherwise>
+            <xsl:value-of select="mods:namePart" />
+          </xsl:otherwise>
+        </xsl:choose>
+      </field>
+    </xsl:for-each>
+    <xsl:variable name="dateIssued" select="normalize-space($mods/mods:originInfo/mods:dateIssued[1])" />
+    <xsl:if test="string-length($dateIssued) &gt;= 4">
+      <field name="vzg.summary.year">
+        <xsl:value-of select="substring($dateIssued, 1, 4)" />
+      </field>
+    </xsl:if>
+    <xsl:for-each select="$mods/mods:originInfo[mods:publisher][1]">
+      <field name="vzg.summary.publisher">
+        <xsl:if test="string-length(mods:place/mods:placeTerm) &gt; 0">
+          <xsl:value-of select="concat(mods:place/mods:placeTerm, ': ')" />
+        </xsl:if>
+        <xsl:value-of select="mods:publisher" />
+      </field>
+    </xsl:for-each>
+    <xsl:for-each select="$mods/mods:genre[@type='intern'][contains(@valueURI, '#')][1]">
+      <field name="vzg.summary.genre">
+        <xsl:value-of select="substring-after(@valueURI, '#')" />
+      </field>
+    </xsl:for-each>
+    <xsl:for-each select="service/servstates/servstate[@classid='state'][1]">
+      <field name="vzg.summary.state">
+        <xsl:value-of select="@categid" />
+      </field>
+    </xsl:for-each>
   </xsl:template>
 
 
@@ -0,0 +1,99 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class VZGDuplicateKeysTest {
+
+    @Test
+    public void testNormalizeTitle() {
+        assertEquals("ernaehrungsphysiologie der nutztiere",
+            VZGDuplicateKeys.normalizeTitle("Ernährungsphysiologie der Nutztiere"));
+        assertEquals("a b c", VZGDuplicateKeys.normalizeTitle("  A: b -- c. "));
+        assertEquals("cafe strasse", VZGDuplicateKeys.normalizeTitle("Café Straße"));
+        assertEquals("", VZGDuplicateKeys.normalizeTitle("..."));
+    }
+
+    @Test
+    public void testNormalizeDecomposedTitle() {
+        // a and o followed by a combining diaeresis, as sent by some catalogues
+        assertEquals("ernaehrung der hoefe",
+            VZGDuplicateKeys.normalizeTitle("Erna\u0308hrung der Ho\u0308fe"));
+        assertEquals(VZGDuplicateKeys.getTitleKeys("Ernährung der Höfe", ""),
+            VZGDuplicateKeys.getTitleKeys("Erna\u0308hrung der Ho\u0308fe", ""));
+    }
+
+    @Test
+    public void testTitleVariants() {
+        assertEquals(VZGDuplicateKeys.getTitleKeys("Ernährung der Nutztiere", ""),
+            VZGDuplicateKeys.getTitleKeys("Ernaehrung der Nutztiere.", ""));
+        assertEquals(VZGDuplicateKeys.getTitleKeys("Ernährung: der Nutztiere", null),
+            VZGDuplicateKeys.getTitleKeys("ERNÄHRUNG der Nutztiere", null));
+        assertEquals("", VZGDuplicateKeys.getTitleKeys("...", ""));
+    }
+
+    @Test
+    public void testSimilarTitlesShareKeys() {
+        String titleText = "Ernährungsphysiologie der landwirtschaftlichen Nutztiere";
+        List<String> title = getBandKeys(titleText);
+        List<String> similar = getBandKeys("Ernährungsphysiologie landwirtschaftlicher Nutztiere");
+        List<String> other = getBandKeys("Geschichte der Stadt Göttingen im Mittelalter");
+        assertTrue(shared(title, similar) > shared(title, other));
+        assertEquals(0, shared(title, other));
+        // the title alone is indexed, so a record with subtitle still matches one without
+        Set<String> withSubTitle = Set.of(VZGDuplicateKeys.getTitleKeys(titleText, "Lehrbuch")
+            .split(" "));
+        assertTrue(withSubTitle.containsAll(title));
+    }
+
+    @Test
+    public void testIdentifierKeys() {
+        assertEquals("9783161484100", VZGDuplicateKeys.normalizeISBN("3-16-148410-X"));
+        assertEquals("9783161484100", VZGDuplicateKeys.normalizeISBN("978-3-16-148410-0 (pbk.)"));
+        assertNull(VZGDuplicateKeys.normalizeISBN("3-16-1484"));
+        assertEquals("isbn:9783161484100", VZGDuplicateKeys.getIdentifierKey("isbn", "316148410X"));
+        assertEquals("doi:10.1000/abc",
+            VZGDuplicateKeys.getIdentifierKey("doi", "https://doi.org/10.1000/ABC"));
+        String uri = VZGDuplicateSearch.PPN_URI_PREFIX + "12345678x";
+        assertEquals("ppn:12345678X", VZGDuplicateKeys.getIdentifierKey("uri", uri));
+        assertEquals(VZGDuplicateKeys.getPPNKey("12345678X"),
+            VZGDuplicateKeys.getIdentifierKey("uri", uri));
+        assertEquals("", VZGDuplicateKeys.getIdentifierKey("urn", "urn:nbn:de:1234"));
+    }
+
+    private static List<String> getBandKeys(String title) {
+        return VZGDuplicateKeys.getBandKeys(VZGDuplicateKeys.normalizeTitle(title));
+    }
+
+    private static int shared(List<String> keys, List<String> otherKeys) {
+        Set<String> sharedKeys = new HashSet<>(keys);
+        sharedKeys.retainAll(otherKeys);
+        return sharedKeys.size();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+public class VZGDuplicateSearchTest {
+
+    @Test
+    public void testGetScore() {
+        Set<String> keys = Set.of("t0_a", "t1_b", "t2_c", "isbn:9783161484100");
+        assertEquals(2, VZGDuplicateSearch.getScore(keys, Set.of("t0_a", "t1_b", "t3_d")));
+        assertEquals(13, VZGDuplicateSearch.getScore(keys, Set.of("t2_c", "isbn:9783161484100")));
+        assertEquals(0, VZGDuplicateSearch.getScore(keys, Set.of("t0_x", "doi:10.1000/abc")));
+    }
+
+    @Test
+    public void differentTitlesSharingOneBandAreNoDuplicates() {
+        Set<String> keys = getTitleKeys("Einführung in die Landwirtschaft");
+        Set<String> otherKeys = getTitleKeys("Grundlagen der Forstwirtschaft");
+        int score = VZGDuplicateSearch.getScore(keys, otherKeys);
+        assertEquals(1, score);
+        assertTrue(score < VZGPPNBulkImport.DEFAULT_MIN_SCORE);
+        Set<String> sameKeys = getTitleKeys("Einführung in die Landwirtschaft.");
+        assertTrue(VZGDuplicateSearch.getScore(keys, sameKeys) >= VZGPPNBulkImport.DEFAULT_MIN_SCORE);
+    }
+
+    private static Set<String> getTitleKeys(String title) {
+        return Set.of(VZGDuplicateKeys.getTitleKeys(title, "").split(" "));
+    }
+}
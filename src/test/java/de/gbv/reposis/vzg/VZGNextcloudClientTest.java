@@ -0,0 +1,153 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the retry behaviour of {@link VZGNextcloudClient} against a local stub WebDAV server,
+ * which answers the PUT requests with a scripted sequence of status codes.
+ */
+public class VZGNextcloudClientTest {
+
+    private static final String SHARE_TOKEN = "stubtoken";
+
+    private static final byte[] CONTENT = "  003@ $0123456789\n".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+
+    private final Deque<Integer> responseCodes = new ArrayDeque<>();
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private VZGNextcloudClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/public.php/dav/files/", this::handle);
+        server.start();
+        String nextcloudURL = "http://localhost:" + server.getAddress().getPort() + "/";
+        client = new VZGNextcloudClient(nextcloudURL, SHARE_TOKEN, Duration.ofSeconds(5),
+            Duration.ofSeconds(5), 2, Duration.ofMillis(10));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " "
+            + new String(body, StandardCharsets.UTF_8));
+        Integer code;
+        synchronized (responseCodes) {
+            code = responseCodes.isEmpty() ? 201 : responseCodes.poll();
+        }
+        exchange.sendResponseHeaders(code, -1);
+        exchange.close();
+    }
+
+    private boolean upload() {
+        return client.upload("pica_patch_1.pp", new ByteArrayEntity(CONTENT, ContentType.TEXT_PLAIN));
+    }
+
+    @Test
+    public void uploadStoresFile() {
+        assertTrue(upload());
+        assertEquals(List.of("PUT /public.php/dav/files/" + SHARE_TOKEN + "/pica_patch_1.pp "
+            + new String(CONTENT, StandardCharsets.UTF_8)), requests);
+    }
+
+    @Test
+    public void transientErrorsAreRetriedWithSameContent() {
+        responseCodes.addAll(List.of(503, 429));
+        assertTrue(upload());
+        assertEquals(3, requests.size());
+        assertEquals(1, requests.stream().distinct().count());
+    }
+
+    @Test
+    public void uploadFailsAfterMaxRetries() {
+        responseCodes.addAll(List.of(500, 502, 503, 504));
+        assertFalse(upload());
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        responseCodes.add(404);
+        assertFalse(upload());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void connectionErrorsAreRetried() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        ServerSocket socket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        // accepts each connection and closes it without a response
+        Thread acceptor = Thread.ofVirtual().start(() -> {
+            while (!socket.isClosed()) {
+                try {
+                    Socket connection = socket.accept();
+                    connections.incrementAndGet();
+                    connection.close();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        try (VZGNextcloudClient unreachable = new VZGNextcloudClient(
+            "http://localhost:" + socket.getLocalPort(), SHARE_TOKEN, Duration.ofSeconds(1),
+            Duration.ofSeconds(1), 2, Duration.ofMillis(10))) {
+            assertFalse(unreachable.upload("pica_patch_1.pp",
+                new ByteArrayEntity(CONTENT, ContentType.TEXT_PLAIN)));
+        } finally {
+            socket.close();
+            acceptor.join();
+        }
+        assertEquals(3, connections.get());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+public class VZGPPNBulkImportTest {
+
+    @Test
+    public void resultsAreInTheGivenOrder() {
+        TestSteps steps = new TestSteps();
+        steps.conversionFailures.add("105");
+        steps.duplicates.put("103",
+            List.of(new VZGPPNBulkImport.Candidate("vzg_mods_00000042", 12)));
+        VZGPPNBulkImport bulkImport = new VZGPPNBulkImport(4, 2, 6, () -> steps);
+
+        List<VZGPPNBulkImport.Result> results =
+            bulkImport.run(List.of("101", "x", "102", "103", "101", "104", "105", "106"));
+
+        assertEquals(List.of("101", "x", "102", "103", "101", "104", "105", "106"),
+            results.stream().map(VZGPPNBulkImport.Result::ppn).toList());
+        assertEquals(List.of(VZGPPNBulkImport.Status.CREATED, VZGPPNBulkImport.Status.FAILED,
+            VZGPPNBulkImport.Status.CREATED, VZGPPNBulkImport.Status.DUPLICATE,
+            VZGPPNBulkImport.Status.DUPLICATE, VZGPPNBulkImport.Status.CREATED,
+            VZGPPNBulkImport.Status.FAILED, VZGPPNBulkImport.Status.CREATED),
+            results.stream().map(VZGPPNBulkImport.Result::status).toList());
+        assertEquals(List.of("vzg_mods_00000042"), results.get(3).duplicates());
+        // the documents are created in the order of the PPNs
+        assertEquals(List.of("101", "102", "104", "106"), steps.stored);
+        assertEquals("id_101", results.get(0).objectID());
+        assertEquals(4, steps.commits);
+    }
+
+    @Test
+    public void candidatesBelowTheMinimumScoreAreOnlyReported() {
+        TestSteps steps = new TestSteps();
+        // a single shared title band
+        steps.duplicates.put("101",
+            List.of(new VZGPPNBulkImport.Candidate("vzg_mods_00000001", 1)));
+        steps.duplicates.put("102", List.of(new VZGPPNBulkImport.Candidate("vzg_mods_00000001", 1),
+            new VZGPPNBulkImport.Candidate("vzg_mods_00000002", 6)));
+        VZGPPNBulkImport bulkImport = new VZGPPNBulkImport(1, 10, 6, () -> steps);
+
+        List<VZGPPNBulkImport.Result> results = bulkImport.run(List.of("101", "102"));
+
+        assertEquals(VZGPPNBulkImport.Status.CREATED, results.get(0).status());
+        assertEquals(List.of("vzg_mods_00000001"), results.get(0).duplicates());
+        assertEquals("possible duplicates", results.get(0).message());
+        assertEquals(VZGPPNBulkImport.Status.DUPLICATE, results.get(1).status());
+        assertEquals(List.of("vzg_mods_00000002"), results.get(1).duplicates());
+        assertEquals(List.of("101"), steps.stored);
+    }
+
+    @Test
+    public void failedCreationDoesNotAffectOtherObjects() {
+        TestSteps steps = new TestSteps();
+        steps.creationFailures.add("102");
+        VZGPPNBulkImport bulkImport = new VZGPPNBulkImport(1, 10, 6, () -> steps);
+
+        List<VZGPPNBulkImport.Result> results = bulkImport.run(List.of("101", "102", "103"));
+
+        assertEquals(List.of(VZGPPNBulkImport.Status.CREATED, VZGPPNBulkImport.Status.FAILED,
+            VZGPPNBulkImport.Status.CREATED),
+            results.stream().map(VZGPPNBulkImport.Result::status).toList());
+        assertNull(results.get(1).objectID());
+        assertEquals(List.of("101", "103"), steps.stored);
+        assertEquals(2, steps.commits);
+        assertEquals(1, steps.rollbacks);
+    }
+
+    @Test
+    public void failedCommitReportsWhetherTheObjectWasStored() {
+        TestSteps steps = new TestSteps();
+        steps.commitFailures.add("101");
+        steps.commitFailures.add("102");
+        // the metadata store is not part of the transaction
+        steps.keptOnRollback.add("101");
+        VZGPPNBulkImport bulkImport = new VZGPPNBulkImport(1, 10, 6, () -> steps);
+
+        List<VZGPPNBulkImport.Result> results = bulkImport.run(List.of("101", "102", "103"));
+
+        assertEquals(VZGPPNBulkImport.Status.CREATED, results.get(0).status());
+        assertEquals("id_101", results.get(0).objectID());
+        assertEquals("stored, but the transaction failed: commit of 101", results.get(0).message());
+        assertEquals(VZGPPNBulkImport.Status.FAILED, results.get(1).status());
+        assertEquals("creation failed: commit of 102", results.get(1).message());
+        assertEquals(VZGPPNBulkImport.Status.CREATED, results.get(2).status());
+        assertEquals(List.of("101", "103"), steps.stored);
+    }
+
+    @Test
+    public void failedDuplicateSearchOnlyAffectsItsBatch() {
+        TestSteps steps = new TestSteps();
+        steps.searchFailures.add("101");
+        VZGPPNBulkImport bulkImport = new VZGPPNBulkImport(2, 2, 6, () -> steps);
+
+        List<VZGPPNBulkImport.Result> results = bulkImport.run(List.of("101", "102", "103"));
+
+        assertEquals(List.of(VZGPPNBulkImport.Status.FAILED, VZGPPNBulkImport.Status.FAILED,
+            VZGPPNBulkImport.Status.CREATED),
+            results.stream().map(VZGPPNBulkImport.Result::status).toList());
+        assertEquals("duplicate search failed: search of [101, 102]", results.get(1).message());
+        assertEquals(List.of("103"), steps.stored);
+    }
+
+    @Test
+    public void reportIsCsv() throws IOException {
+        StringWriter out = new StringWriter();
+        VZGPPNBulkImport.writeReport(List.of(
+            new VZGPPNBulkImport.Result("101", VZGPPNBulkImport.Status.CREATED,
+                "vzg_mods_00000001", List.of(), null),
+            new VZGPPNBulkImport.Result("102", VZGPPNBulkImport.Status.DUPLICATE, null,
+                List.of("vzg_mods_00000002", "vzg_mods_00000003"), null),
+            new VZGPPNBulkImport.Result("103", VZGPPNBulkImport.Status.FAILED, null, List.of(),
+                "creation failed: \"x\", y")), out);
+
+        assertEquals("ppn,status,id,duplicates,message\r\n"
+            + "101,CREATED,vzg_mods_00000001,,\r\n"
+            + "102,DUPLICATE,,vzg_mods_00000002 vzg_mods_00000003,\r\n"
+            + "103,FAILED,,,\"creation failed: \"\"x\"\", y\"\r\n", out.toString());
+    }
+
+    /**
+     * Documents are their PPN, the transaction holds the created documents until the commit.
+     */
+    private static final class TestSteps implements VZGPPNBulkImport.Steps<String> {
+
+        final Set<String> conversionFailures = ConcurrentHashMap.newKeySet();
+
+        final Set<String> searchFailures = ConcurrentHashMap.newKeySet();
+
+        final Map<String, List<VZGPPNBulkImport.Candidate>> duplicates = new HashMap<>();
+
+        final Set<String> creationFailures = ConcurrentHashMap.newKeySet();
+
+        final Set<String> commitFailures = ConcurrentHashMap.newKeySet();
+
+        final Set<String> keptOnRollback = ConcurrentHashMap.newKeySet();
+
+        final List<String> stored = new ArrayList<>();
+
+        final List<String> transaction = new ArrayList<>();
+
+        int commits;
+
+        int rollbacks;
+
+        @Override
+        public String convert(String ppn) {
+            if (conversionFailures.contains(ppn)) {
+                throw new IllegalStateException("conversion of " + ppn);
+            }
+            return ppn;
+        }
+
+        @Override
+        public Map<String, List<VZGPPNBulkImport.Candidate>> searchDuplicates(
+            Map<String, String> documentsByPPN) {
+            if (!Collections.disjoint(searchFailures, documentsByPPN.keySet())) {
+                throw new IllegalStateException("search of " + documentsByPPN.keySet());
+            }
+            Map<String, List<VZGPPNBulkImport.Candidate>> result = new LinkedHashMap<>();
+            documentsByPPN.keySet()
+                .forEach(ppn -> result.put(ppn, duplicates.getOrDefault(ppn, List.of())));
+            return result;
+        }
+
+        @Override
+        public void create(String document) {
+            if (creationFailures.contains(document)) {
+                throw new IllegalStateException("creation of " + document);
+            }
+            transaction.add(document);
+            if (keptOnRollback.contains(document)) {
+                stored.add(document);
+            }
+        }
+
+        @Override
+        public String getId(String document) {
+            return "id_" + document;
+        }
+
+        @Override
+        public boolean isStored(String document) {
+            return stored.contains(document);
+        }
+
+        @Override
+        public void commit() {
+            for (String document : transaction) {
+                if (commitFailures.contains(document)) {
+                    throw new IllegalStateException("commit of " + document);
+                }
+            }
+            stored.addAll(transaction);
+            transaction.clear();
+            commits++;
+        }
+
+        @Override
+        public void rollback() {
+            transaction.clear();
+            rollbacks++;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VZGPendingImportStoreTest {
+
+    private static final Namespace MODS = Namespace.getNamespace("mods",
+        "http://www.loc.gov/mods/v3");
+
+    private long now;
+
+    private VZGPendingImportStore store;
+
+    @Before
+    public void setUp() {
+        store = new VZGPendingImportStore(2, Duration.ofSeconds(10), () -> now);
+    }
+
+    @Test
+    public void modsIsTakenOnce() {
+        String token = store.put(createMods("Ernährung der Nutztiere"));
+        assertNotEquals(token, store.put(createMods("Ernährung der Nutztiere")));
+
+        Element mods = store.take(token);
+        assertEquals("mods", mods.getName());
+        assertEquals(MODS, mods.getNamespace());
+        assertEquals("Ernährung der Nutztiere",
+            mods.getChild("titleInfo", MODS).getChildText("title", MODS));
+        assertNull(store.take(token));
+        assertNull(store.take("unknown"));
+    }
+
+    @Test
+    public void expiredEntriesAreRemoved() {
+        String expired = store.put(createMods("a"));
+        now = Duration.ofSeconds(5).toNanos();
+        String pending = store.put(createMods("b"));
+        now = Duration.ofSeconds(10).toNanos();
+        assertNull(store.take(expired));
+        assertEquals(1, store.getSize());
+        now = Duration.ofSeconds(15).toNanos();
+        store.put(createMods("c"));
+        assertEquals(1, store.getSize());
+        assertNull(store.take(pending));
+    }
+
+    @Test
+    public void oldestEntriesAreRemoved() {
+        String first = store.put(createMods("a"));
+        String second = store.put(createMods("b"));
+        String third = store.put(createMods("c"));
+        assertEquals(2, store.getSize());
+        assertNull(store.take(first));
+        Element mods = store.take(second);
+        assertEquals("b", mods.getChild("titleInfo", MODS).getChildText("title", MODS));
+        store.remove(third);
+        assertEquals(0, store.getSize());
+    }
+
+    private static Element createMods(String title) {
+        Element mods = new Element("mods", MODS);
+        mods.addContent(new Element("titleInfo", MODS).addContent(
+            new Element("title", MODS).setText(title)));
+        return mods;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class VZGPicaPatchTemplateTest {
+
+    private static final String BASE_URL = "https://vzg.example.org/";
+
+    private static final String URN = "urn:nbn:de:gbv:1-2";
+
+    private static final String ENTRY = "  003@ $0123456789\n+ 004U $0" + URN + "\n"
+        + "+ 017C $u" + BASE_URL + "rsc/resolve/urn/" + URN + "/content"
+        + "$xD$3Volltext$4LF$534$ADE-Ha91\n";
+
+    private static final String TEMPLATE_PROPERTY = "MCR.Cronjob.Jobs.CatalogPatch.Template";
+
+    private static String write(VZGPicaPatchTemplate template, String urn) throws IOException {
+        StringBuilder entry = new StringBuilder();
+        template.write(entry, BASE_URL, "123456789", urn);
+        return entry.toString();
+    }
+
+    @Test
+    public void defaultTemplate() throws IOException {
+        VZGPicaPatchTemplate template =
+            VZGPicaPatchTemplate.compile(VZGPicaPatchTemplate.DEFAULT_TEMPLATE);
+        assertEquals(ENTRY, write(template, URN));
+    }
+
+    @Test
+    public void documentedTemplateKeepsIndent() throws IOException {
+        String example;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            getClass().getResourceAsStream("/config/reposis_vzg/mycore.properties"),
+            StandardCharsets.ISO_8859_1))) {
+            example = reader.lines().filter(line -> line.startsWith("# " + TEMPLATE_PROPERTY))
+                .findFirst().orElseThrow().substring(2);
+        }
+        Properties properties = new Properties();
+        properties.load(new StringReader(example));
+        VZGPicaPatchTemplate template =
+            VZGPicaPatchTemplate.compile(properties.getProperty(TEMPLATE_PROPERTY));
+        assertEquals(ENTRY, write(template, URN));
+    }
+
+    @Test
+    public void invalidURLsAreRejected() {
+        VZGPicaPatchTemplate template =
+            VZGPicaPatchTemplate.compile(VZGPicaPatchTemplate.DEFAULT_TEMPLATE);
+        assertThrows(IllegalArgumentException.class, () -> write(template, "urn:nbn:de 1"));
+        assertThrows(IllegalArgumentException.class,
+            () -> VZGPicaPatchTemplate.checkBaseURL("https://vzg example.org/"));
+        assertEquals(BASE_URL, VZGPicaPatchTemplate.checkBaseURL(BASE_URL));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link VZGPicaXMLCache} against a local stand-in of the unAPI.
+ */
+public class VZGPicaXMLCacheTest {
+
+    private static final String PPN = "198562268";
+
+    private static final String UNKNOWN_PPN = "12345678X";
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private String baseURL;
+
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        baseURL = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        queries.add(query);
+        if (query.contains(PPN)) {
+            byte[] body = getRecord(PPN);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+        exchange.close();
+    }
+
+    private static byte[] getRecord(String ppn) {
+        return ("<record xmlns=\"info:srw/schema/5/picaXML-v1.0\"><datafield tag=\"003@\">"
+            + "<subfield code=\"0\">" + ppn + "</subfield></datafield></record>")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testMemoryCache() throws IOException {
+        try (VZGPicaXMLCache cache = new VZGPicaXMLCache(baseURL, 10, TTL, null, 10,
+            Duration.ofSeconds(5))) {
+            assertArrayEquals(getRecord(PPN), cache.get(PPN));
+            assertArrayEquals(getRecord(PPN), cache.get(PPN));
+            assertEquals(List.of("id=gvk:ppn:" + PPN + "&format=picaxml"), queries);
+            assertEquals(1, cache.getMemoryHits());
+            assertEquals(1, cache.getFetches());
+
+            assertNull(cache.get(UNKNOWN_PPN));
+            assertNull(cache.get(UNKNOWN_PPN));
+            assertEquals(2, queries.size());
+        }
+    }
+
+    @Test
+    public void testDiskCache() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("unapi");
+        try (VZGPicaXMLCache cache = new VZGPicaXMLCache(baseURL, 0, TTL, directory, 10,
+            Duration.ofSeconds(5))) {
+            cache.get(PPN);
+            assertNull(cache.get(UNKNOWN_PPN));
+            assertTrue(Files.exists(directory.resolve(PPN + ".xml")));
+            assertFalse(Files.exists(directory.resolve(UNKNOWN_PPN + ".xml")));
+        }
+        try (VZGPicaXMLCache cache = new VZGPicaXMLCache(baseURL, 0, TTL, directory, 10,
+            Duration.ofSeconds(5))) {
+            assertArrayEquals(getRecord(PPN), cache.get(PPN));
+            assertEquals(1, cache.getDiskHits());
+            assertEquals(0, cache.getFetches());
+
+            Files.setLastModifiedTime(directory.resolve(PPN + ".xml"),
+                FileTime.from(Instant.now().minus(TTL).minusSeconds(1)));
+            assertArrayEquals(getRecord(PPN), cache.get(PPN));
+            assertEquals(1, cache.getFetches());
+        }
+    }
+
+    @Test
+    public void testDiskCacheSize() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        for (int i = 0; i < 5; i++) {
+            Path file = directory.resolve("10000000" + i + ".xml");
+            Files.write(file, getRecord("10000000" + i));
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minusSeconds(60 - i)));
+        }
+        try (VZGPicaXMLCache cache = new VZGPicaXMLCache(baseURL, 0, TTL, directory, 3,
+            Duration.ofSeconds(5))) {
+            cache.get(PPN);
+        }
+        assertTrue(Files.exists(directory.resolve(PPN + ".xml")));
+        assertTrue(Files.exists(directory.resolve("100000004.xml")));
+        assertTrue(Files.exists(directory.resolve("100000003.xml")));
+        assertFalse(Files.exists(directory.resolve("100000002.xml")));
+    }
+
+    @Test
+    public void testDiskCacheTrimsBelowMaximum() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        for (int i = 10; i < 22; i++) {
+            Path file = directory.resolve("1000000" + i + ".xml");
+            Files.write(file, getRecord("1000000" + i));
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minusSeconds(60 - i)));
+        }
+        try (VZGPicaXMLCache cache = new VZGPicaXMLCache(baseURL, 0, TTL, directory, 10,
+            Duration.ofSeconds(5))) {
+            cache.get(PPN);
+        }
+        // a tenth of the maximum is left free for the next writes
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(9, files.count());
+        }
+        assertTrue(Files.exists(directory.resolve(PPN + ".xml")));
+        assertFalse(Files.exists(directory.resolve("100000013.xml")));
+        assertTrue(Files.exists(directory.resolve("100000014.xml")));
+    }
+
+    @Test
+    public void testValidPPN() {
+        assertTrue(VZGPicaXMLCache.isValidPPN(PPN));
+        assertTrue(VZGPicaXMLCache.isValidPPN(UNKNOWN_PPN));
+        assertFalse(VZGPicaXMLCache.isValidPPN(null));
+        assertFalse(VZGPicaXMLCache.isValidPPN("123&format=marcxml"));
+        assertFalse(VZGPicaXMLCache.isValidPPN("../123"));
+    }
+}
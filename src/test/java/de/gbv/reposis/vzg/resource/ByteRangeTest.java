@@ -0,0 +1,67 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void parseSingleRanges() {
+        assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=0-99", 1000));
+        assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+        assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000));
+        assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("bytes=990-2000", 1000));
+    }
+
+    @Test
+    public void parseMultipleRanges() {
+        assertEquals(List.of(new ByteRange(0, 9), new ByteRange(20, 29)),
+            ByteRange.parse("bytes=0-9, 20-29, 2000-", 1000));
+    }
+
+    @Test
+    public void unsatisfiableRanges() {
+        assertEquals(List.of(), ByteRange.parse("bytes=1000-", 1000));
+        assertEquals(List.of(), ByteRange.parse("bytes=-0", 1000));
+    }
+
+    @Test
+    public void invalidHeadersAreIgnored() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-10", 1000));
+        assertNull(ByteRange.parse("bytes=10-5", 1000));
+        assertNull(ByteRange.parse("bytes=a-b", 1000));
+        assertNull(ByteRange.parse("bytes=5", 1000));
+        assertNull(ByteRange.parse("bytes=" + "0-1,".repeat(ByteRange.MAX_RANGES + 1), 1000));
+    }
+
+    @Test
+    public void contentRange() {
+        assertEquals("bytes 70000-150000/200000",
+            new ByteRange(70_000, 150_000).toContentRange(200_000));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg.resource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the bytes sent by {@link FileDelivery}. The throughput is measured by
+ * {@code FileDeliveryBenchmark} in the benchmark profile.
+ */
+public class FileDeliveryTest {
+
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    private static byte[] content;
+
+    private static Path file;
+
+    @BeforeClass
+    public static void createFile() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        file = Files.createTempFile("delivery", ".bin");
+        Files.write(file, content);
+    }
+
+    @AfterClass
+    public static void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static byte[] transfer(long position, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileDelivery delivery = FileDelivery.open(file)) {
+            delivery.transfer(position, count, out);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void rangesAreSent() throws IOException {
+        assertArrayEquals(content, transfer(0, FILE_SIZE));
+        assertArrayEquals(Arrays.copyOfRange(content, 70_000, 150_001), transfer(70_000, 80_001));
+        assertArrayEquals(new byte[0], transfer(10, 0));
+    }
+
+    @Test
+    public void bufferGrowsForLaterRanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileDelivery delivery = FileDelivery.open(file)) {
+            delivery.transfer(5, 1, out);
+            delivery.transfer(0, FILE_SIZE, out);
+        }
+        byte[] expected = new byte[FILE_SIZE + 1];
+        expected[0] = content[5];
+        System.arraycopy(content, 0, expected, 1, FILE_SIZE);
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void buffersArePooled() throws IOException {
+        int pooled = FileDelivery.getPooledBuffers();
+        assertArrayEquals(content, transfer(0, FILE_SIZE));
+        assertEquals(Math.max(1, pooled), FileDelivery.getPooledBuffers());
+        assertArrayEquals(content, transfer(0, FILE_SIZE));
+        assertEquals(Math.max(1, pooled), FileDelivery.getPooledBuffers());
+    }
+
+    @Test
+    public void rangesBehindTheEndFail() throws IOException {
+        try {
+            transfer(FILE_SIZE - 10, 20);
+            assertFalse("transfer behind the end of the file must fail", true);
+        } catch (EOFException e) {
+            assertTrue(e.getMessage().contains(String.valueOf(FILE_SIZE + 9)));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package de.gbv.reposis.vzg.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ResolveBatchReaderTest {
+
+    @Test
+    public void identifiersAreSeparatedByWhitespace() throws IOException {
+        assertEquals(List.of("urn:nbn:de:1", "mir_mods_00000001", "urn:nbn:de:2"),
+            ResolveBatchReader.read(new StringReader(
+                "  urn:nbn:de:1\tmir_mods_00000001\r\n\r\nurn:nbn:de:2"), 3));
+        assertEquals(List.of(), ResolveBatchReader.read(new StringReader(" \n "), 3));
+    }
+
+    @Test
+    public void tooManyIdentifiersAreRejected() throws IOException {
+        assertNull(ResolveBatchReader.read(new StringReader("a b c d"), 3));
+        assertNull(ResolveBatchReader.read(new StringReader("a b c d\n"), 3));
+    }
+
+    @Test
+    public void longLineIsRejectedWithoutReadingIt() throws IOException {
+        // a body of one endless line
+        Reader endless = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                Arrays.fill(buffer, offset, offset + length, 'x');
+                return length;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertNull(ResolveBatchReader.read(endless, 3));
+        String longest = "x".repeat(ResolveBatchReader.MAX_IDENTIFIER_LENGTH);
+        assertEquals(List.of(longest), ResolveBatchReader.read(new StringReader(longest), 3));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg.resource;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ResolveBatchWriterTest {
+
+    private static final String BASE_URL = "https://repo.example.org/";
+
+    private static final List<ResolveBatchWriter.Entry> ENTRIES = List.of(
+        new ResolveBatchWriter.Entry("urn:nbn:de:0000-1", "vzg_mods_00000001"),
+        new ResolveBatchWriter.Entry("urn:nbn:de:0000-2,\"x\"", null));
+
+    @Test
+    public void landingPageURLIsTheRedirectTarget() {
+        assertEquals("https://repo.example.org/receive/vzg_mods_00000001",
+            ResolveBatchWriter.getLandingPageURL(BASE_URL, "vzg_mods_00000001"));
+    }
+
+    @Test
+    public void jsonContainsURLsOfTheGivenBaseURL() throws IOException {
+        StringWriter out = new StringWriter();
+        new ResolveBatchWriter(BASE_URL).writeJson(ENTRIES, out);
+        assertEquals("[\n"
+            + "{\"identifier\":\"urn:nbn:de:0000-1\",\"id\":\"vzg_mods_00000001\","
+            + "\"url\":\"https://repo.example.org/receive/vzg_mods_00000001\","
+            + "\"content\":\"https://repo.example.org/rsc/resolve/id/vzg_mods_00000001/content\"},\n"
+            + "{\"identifier\":\"urn:nbn:de:0000-2,\\\"x\\\"\",\"id\":null,\"url\":null,"
+            + "\"content\":null}\n"
+            + "]\n", out.toString());
+    }
+
+    @Test
+    public void csvContainsURLsOfTheGivenBaseURL() throws IOException {
+        StringWriter out = new StringWriter();
+        new ResolveBatchWriter(BASE_URL).writeCsv(ENTRIES, out);
+        assertEquals("identifier,id,url,content\r\n"
+            + "urn:nbn:de:0000-1,vzg_mods_00000001,"
+            + "https://repo.example.org/receive/vzg_mods_00000001,"
+            + "https://repo.example.org/rsc/resolve/id/vzg_mods_00000001/content\r\n"
+            + "\"urn:nbn:de:0000-2,\"\"x\"\"\",,,\r\n", out.toString());
+    }
+}
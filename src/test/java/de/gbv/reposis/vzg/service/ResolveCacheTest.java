@@ -0,0 +1,151 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolveCacheTest {
+
+    private long now;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ResolveCache<String, String> cache;
+
+    private final Function<String, String> loader = key -> {
+        loads.incrementAndGet();
+        return key.startsWith("unknown") ? null : key.toUpperCase();
+    };
+
+    @Before
+    public void setUp() {
+        cache = new ResolveCache<>(2, Duration.ofSeconds(10), Duration.ofSeconds(1), () -> now);
+    }
+
+    @Test
+    public void valuesAreLoadedOnce() {
+        assertEquals("A", cache.get("a", loader));
+        assertEquals("A", cache.get("a", loader));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void unknownKeysExpireEarlier() {
+        assertNull(cache.get("unknown", loader));
+        assertEquals("A", cache.get("a", loader));
+        now += Duration.ofSeconds(2).toNanos();
+        assertNull(cache.get("unknown", loader));
+        assertEquals("A", cache.get("a", loader));
+        assertEquals(3, loads.get());
+        now += Duration.ofSeconds(10).toNanos();
+        cache.get("a", loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a", loader);
+        assertEquals(3, loads.get());
+        cache.get("b", loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void entriesAreInvalidatedByKeyAndValue() {
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.invalidate("a");
+        cache.invalidateValue("B");
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void loadOverlappingInvalidationIsNotCached() {
+        // the object changes while its old value is loaded
+        assertEquals("A", cache.get("a", key -> {
+            cache.invalidate(key);
+            return loader.apply(key);
+        }));
+        assertEquals(0, cache.getSize());
+        Map<String, String> values = cache.getAll(List.of("b"), keys -> {
+            cache.invalidateValue("B");
+            return Map.of("b", "B");
+        });
+        assertEquals("B", values.get("b"));
+        assertEquals(0, cache.getSize());
+        cache.get("a", loader);
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void invalidationOfOtherEntriesDuringALoadIsIgnored() {
+        cache.get("b", loader);
+        assertEquals("A", cache.get("a", key -> {
+            cache.invalidate("b");
+            cache.invalidateValue("C");
+            return loader.apply(key);
+        }));
+        assertEquals(1, cache.getSize());
+        cache.get("a", loader);
+        assertEquals(2, loads.get());
+        cache.get("c", loader);
+        cache.invalidateValue("C");
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void getAllLoadsOnlyMissingKeys() {
+        cache = new ResolveCache<>(10, Duration.ofSeconds(10), Duration.ofSeconds(1), () -> now);
+        cache.get("a", loader);
+        List<Set<String>> requested = new ArrayList<>();
+        Map<String, String> values = cache.getAll(List.of("a", "b", "unknown"), keys -> {
+            requested.add(keys);
+            return Map.of("b", "B");
+        });
+        assertEquals(List.of(Set.of("b", "unknown")), requested);
+        assertEquals("A", values.get("a"));
+        assertEquals("B", values.get("b"));
+        assertTrue(values.containsKey("unknown"));
+        assertNull(values.get("unknown"));
+        assertNull(cache.get("unknown", loader));
+        assertEquals(1, loads.get());
+    }
+}
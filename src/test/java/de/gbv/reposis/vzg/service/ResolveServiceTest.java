@@ -0,0 +1,77 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolveServiceTest {
+
+    private final ResolveService service = new ResolveService(null, null);
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("content", ".pdf");
+        Files.write(file, new byte[100]);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ResolveService.getContentCache().invalidate(file.toString());
+        ResolveService.getContentChecks().invalidate(file.toString());
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void contentFileInfoFollowsChangesWithoutEvent() throws IOException {
+        assertEquals(100, service.getContentFileInfo(file).size());
+
+        Files.write(file, new byte[200]);
+        // checked again after the revalidation interval only
+        assertEquals(100, service.getContentFileInfo(file).size());
+        revalidate();
+        assertEquals(200, service.getContentFileInfo(file).size());
+
+        Instant modified = Instant.parse("2024-01-01T00:00:00Z");
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        revalidate();
+        assertEquals(modified, service.getContentFileInfo(file).lastModified());
+
+        Files.delete(file);
+        revalidate();
+        assertNull(service.getContentFileInfo(file));
+    }
+
+    private void revalidate() {
+        ResolveService.getContentChecks().invalidate(file.toString());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * This file is part of ***  M y C o R e  ***
+ * See http://www.mycore.de/ for details.
+ *
+ * MyCoRe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyCoRe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyCoRe.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.gbv.reposis.vzg.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ResolveTimerTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            double value = ResolveTimer.getBucketValue(ResolveTimer.getBucket(micros));
+            assertTrue(micros + " -> " + value, Math.abs(value - micros) <= 0.5 + micros * 0.125);
+        }
+        assertTrue(ResolveTimer.getBucket(Long.MAX_VALUE) < 4 * 40);
+    }
+
+    @Test
+    public void testPercentiles() {
+        ResolveTimer timer = new ResolveTimer();
+        assertEquals(0, timer.getP99Millis(), 0);
+        for (int i = 1; i <= 100; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(i), i <= 90 ? 200 : 404);
+        }
+        assertEquals(100, timer.getCount());
+        assertEquals(50.5, timer.getMeanMillis(), 0.001);
+        assertEquals(100, timer.getMaxMillis(), 0.001);
+        assertEquals(50, timer.getP50Millis(), 50 * 0.125);
+        assertEquals(95, timer.getP95Millis(), 95 * 0.125);
+        assertEquals(99, timer.getP99Millis(), 99 * 0.125);
+        assertEquals(Map.of(200, 90L, 404, 10L), timer.getStatusCountMap());
+    }
+}